@@ -6,6 +6,11 @@ import ch.brickwork.bsuit.util.Log;
 import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Abstract base class for various flavours of SQL databases.
@@ -143,11 +148,12 @@ public abstract class AbstractSQLDatabase implements IDatabase {
     protected abstract void initDatabase();
     protected abstract void openConnection();
     public abstract List<Record> prepare(final String sql);
-    public abstract List<String> getTableOrViewColumnNames(String tableOrViewName);
-    public abstract Hashtable<String, Integer> getTableOrViewColumnNamesHash(String tableOrViewName);
-    public abstract boolean existsTable(final String name);
-    public abstract boolean existsView(final String name);
-    public abstract void insert(final String tableName, final List<Record> records);
+    public abstract IRecordCursor openCursor(final String sql);
+    public abstract IRecordCursor openTypedCursor(final String sql);
+    protected abstract List<String> readTableOrViewColumnNames(String tableOrViewName);
+    protected abstract boolean readExistsTable(final String name);
+    protected abstract boolean readExistsView(final String name);
+    public abstract boolean insert(final String tableName, final List<Record> records);
     protected abstract List<String> getAllTableNames();
     protected abstract List<String> getAllViewNames();
 
@@ -168,6 +174,187 @@ public abstract class AbstractSQLDatabase implements IDatabase {
     }
 
 
+//
+// SCHEMA CACHE
+//
+    /**
+     * statements after which the cached schema information is discarded, to be matched at the start of each
+     * statement (see isSchemaChanging())
+     */
+    private static final Pattern SCHEMA_CHANGING_STATEMENT = Pattern.compile("(CREATE|DROP|ALTER|ATTACH|DETACH)\\b", Pattern.CASE_INSENSITIVE);
+
+    private final Map<String, Boolean> existsTableCache = new ConcurrentHashMap<>();
+
+    private final Map<String, Boolean> existsViewCache = new ConcurrentHashMap<>();
+
+    private final Map<String, List<String>> columnNamesCache = new ConcurrentHashMap<>();
+
+    private final AtomicLong schemaCacheHits = new AtomicLong();
+
+    private final AtomicLong schemaCacheMisses = new AtomicLong();
+
+    /**
+     * checks whether table with name "name" exists. The answer is cached until the schema changes
+     *
+     * @param name name of table to check for
+     * @return true, if exists
+     */
+    public boolean existsTable(final String name) {
+        final String key = name.toLowerCase();
+        Boolean exists = existsTableCache.get(key);
+        if (null == exists) {
+            schemaCacheMisses.incrementAndGet();
+            exists = readExistsTable(name);
+            existsTableCache.put(key, exists);
+        } else {
+            schemaCacheHits.incrementAndGet();
+        }
+        return exists;
+    }
+
+    /**
+     * checks whether view with name "name" exists. The answer is cached until the schema changes
+     *
+     * @param name name of view to check for
+     * @return true, if exists
+     */
+    public boolean existsView(final String name) {
+        final String key = name.toLowerCase();
+        Boolean exists = existsViewCache.get(key);
+        if (null == exists) {
+            schemaCacheMisses.incrementAndGet();
+            exists = readExistsView(name);
+            existsViewCache.put(key, exists);
+        } else {
+            schemaCacheHits.incrementAndGet();
+        }
+        return exists;
+    }
+
+    /**
+     * get column names of a table or view in the order as defined in the database. The column names are cached
+     * until the schema changes
+     *
+     * @param tableOrViewName name of table or view
+     * @return list of the column names in the correct order as in database, empty list in case of error
+     */
+    public List<String> getTableOrViewColumnNames(final String tableOrViewName) {
+        final List<String> columnNames = getCachedTableOrViewColumnNames(tableOrViewName);
+        return null == columnNames ? new ArrayList<String>() : new ArrayList<>(columnNames);
+    }
+
+    /**
+     * like getTableOrViewColumnNames, but in form of a hash, when the keys are
+     * the columns names and the values are Integer objects denoting the
+     * position of the columns, starting with 0.
+     *
+     * @return hash table where the keys are the column names as defined in the database, and values are Integer
+     * objects from 0..n depending on the position of the column as defined in the database; null in case of error
+     */
+    public Hashtable<String, Integer> getTableOrViewColumnNamesHash(final String tableOrViewName) {
+        final List<String> columnNames = getCachedTableOrViewColumnNames(tableOrViewName);
+        if (null == columnNames) {
+            return null;
+        }
+
+        final Hashtable<String, Integer> columns = new Hashtable<>();
+        for (int i = 0; i < columnNames.size(); i++) {
+            columns.put(columnNames.get(i), i);
+        }
+        return columns;
+    }
+
+    /**
+     * @return number of schema lookups answered from the cache
+     */
+    public long getSchemaCacheHits() {
+        return schemaCacheHits.get();
+    }
+
+    /**
+     * @return number of schema lookups which had to query the database
+     */
+    public long getSchemaCacheMisses() {
+        return schemaCacheMisses.get();
+    }
+
+    /**
+     * discards all cached schema information. To be called by implementations before executing a statement
+     * which possibly changes the schema, see invalidateSchemaCache(String), or when the database changes altogether
+     */
+    protected void invalidateSchemaCache() {
+        existsTableCache.clear();
+        existsViewCache.clear();
+        columnNamesCache.clear();
+    }
+
+    /**
+     * discards all cached schema information if the SQL contains a CREATE, DROP, ALTER, ATTACH or DETACH statement
+     *
+     * @param sql statement(s) about to be executed
+     */
+    protected void invalidateSchemaCache(final String sql) {
+        if (isSchemaChanging(sql)) {
+            invalidateSchemaCache();
+        }
+    }
+
+    /**
+     * @param sql one or more statements, separated by ;
+     * @return true if any of the statements starts with one of SCHEMA_CHANGING_STATEMENT. Comments and whitespace
+     * before a statement are skipped, as well as string literals and quoted names within statements
+     */
+    private static boolean isSchemaChanging(final String sql) {
+        final Matcher statement = SCHEMA_CHANGING_STATEMENT.matcher(sql);
+        boolean statementStart = true;
+        int i = 0;
+        while (i < sql.length()) {
+            final char c = sql.charAt(i);
+            if (sql.startsWith("--", i)) {
+                final int end = sql.indexOf('\n', i);
+                i = end == -1 ? sql.length() : end + 1;
+            } else if (sql.startsWith("/*", i)) {
+                final int end = sql.indexOf("*/", i + 2);
+                i = end == -1 ? sql.length() : end + 2;
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == ';') {
+                statementStart = true;
+                i++;
+            } else if (c == '\'' || c == '"' || c == '`' || c == '[') {
+                // an escaped quote ('') just ends one literal and starts the next one
+                final int end = sql.indexOf(c == '[' ? ']' : c, i + 1);
+                i = end == -1 ? sql.length() : end + 1;
+                statementStart = false;
+            } else {
+                if (statementStart && statement.region(i, sql.length()).lookingAt()) {
+                    return true;
+                }
+                statementStart = false;
+                i++;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return cached (unmodifiable by contract) column names, null in case of error
+     */
+    private List<String> getCachedTableOrViewColumnNames(final String tableOrViewName) {
+        final String key = tableOrViewName.toLowerCase();
+        List<String> columnNames = columnNamesCache.get(key);
+        if (null == columnNames) {
+            schemaCacheMisses.incrementAndGet();
+            columnNames = readTableOrViewColumnNames(tableOrViewName);
+            if (null != columnNames) {
+                columnNamesCache.put(key, columnNames);
+            }
+        } else {
+            schemaCacheHits.incrementAndGet();
+        }
+        return columnNames;
+    }
+
 //
 // META DATA MANAGEMENT (VARIABLES)
 //
@@ -283,6 +470,45 @@ public abstract class AbstractSQLDatabase implements IDatabase {
         return prepare(sql);
     }
 
+    /**
+     * opens a cursor over all records from table or view "tableOrViewName"
+     *
+     * @param tableOrViewName name of table of view to read from
+     * @return cursor which must be closed by the caller, or null in case of error
+     */
+    public IRecordCursor openCursor(final String tableOrViewName, final String sortField, Boolean sortAsc) {
+        String sql = "SELECT * FROM " + tableOrViewName;
+        if (null != sortField) {
+            sql = sql + " ORDER BY " + sortField + " " + (null == sortAsc || sortAsc ? getAscKeyword() : getDescKeyword());
+        }
+        return openCursor(sql);
+    }
+
+    /**
+     * executes an SQL query and passes each record of its result to the callback
+     *
+     * @param sql      query
+     * @param callback receives the records; may stop reading by returning false
+     * @return false in case of error
+     */
+    public boolean forEachRecord(final String sql, final IRecordCallback callback) {
+        final IRecordCursor cursor = openCursor(sql);
+        if (null == cursor) {
+            return false;
+        }
+
+        try {
+            while (cursor.hasNext()) {
+                if (!callback.handle(cursor.next())) {
+                    break;
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return !cursor.isFailed();
+    }
+
     /**
      * checks whether table or view with name "name" exists
      *
@@ -427,7 +653,8 @@ public abstract class AbstractSQLDatabase implements IDatabase {
     /**
      * @param tableName
      * @param record
-     * @param placeHolders
+     * @param placeHolders if true, values are replaced by ? place holders (to be bound later), in the order of the
+     *                     values of the record
      * @return
      */
     protected String createInsertStatement(final String tableName, final Record record, boolean placeHolders) {
@@ -446,9 +673,13 @@ public abstract class AbstractSQLDatabase implements IDatabase {
                 valuesString.append(", ");
             }
             attributeString.append(sanitizeName(v.getAttributeName()));
-            valuesString.append("'");
-            valuesString.append(placeHolders ? '?' : literalizeQuotes(v.getValue().toString()));
-            valuesString.append("'");
+            if (placeHolders) {
+                valuesString.append('?');
+            } else {
+                valuesString.append("'");
+                valuesString.append(literalizeQuotes(v.getValue().toString()));
+                valuesString.append("'");
+            }
         }
 
         sql.append(attributeString);
@@ -753,6 +984,20 @@ public abstract class AbstractSQLDatabase implements IDatabase {
      */
     public Variable createOrReplaceVariableAndTable(final String tableName, final String desc, final String fileName,
                                                     String[] columnNames, String[] primaryKeys) {
+        return createOrReplaceVariableAndTable(tableName, desc, fileName, columnNames, null, primaryKeys);
+    }
+
+    /**
+     * @param tableName   name of table
+     * @param desc        description of variable
+     * @param fileName    name of file
+     * @param columnNames array of strings contains column names
+     * @param columnTypes types of the columns, in the order of columnNames; if null, all columns are TEXT
+     * @param primaryKeys array of strings contains PK names
+     * @return created Variable
+     */
+    public Variable createOrReplaceVariableAndTable(final String tableName, final String desc, final String fileName,
+                                                    String[] columnNames, final ColumnType[] columnTypes, String[] primaryKeys) {
         columnNames = cleanColumnNames(columnNames);
         if (existsTable(tableName)) {
             // delete data (if already exists)
@@ -769,6 +1014,7 @@ public abstract class AbstractSQLDatabase implements IDatabase {
         sbuf.append(tV.getTableName());
         sbuf.append(" (");
         boolean first = true;
+        int column = 0;
         for (String colName : columnNames) {
             if (first) {
                 first = false;
@@ -776,7 +1022,9 @@ public abstract class AbstractSQLDatabase implements IDatabase {
                 sbuf.append(", ");
             }
             sbuf.append(sanitizeName(colName));
-            sbuf.append(" VARCHAR(1024)");
+            sbuf.append(" ");
+            sbuf.append(null == columnTypes ? ColumnType.TEXT.getDeclaration() : columnTypes[column].getDeclaration());
+            column++;
         }
 
         if (primaryKeys != null && primaryKeys.length > 0) {
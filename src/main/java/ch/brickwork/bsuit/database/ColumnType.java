@@ -0,0 +1,63 @@
+package ch.brickwork.bsuit.database;
+
+/**
+ * Types of the columns of tables created by BoilerSuit. By default, all columns are TEXT; the other types are used
+ * if they are inferred on import, see FileLoader
+ */
+public enum ColumnType {
+
+    TEXT("VARCHAR(1024)"),
+
+    INTEGER("INTEGER"),
+
+    REAL("REAL"),
+
+    /**
+     * dates are stored as ISO text (yyyy-MM-dd[ HH:mm[:ss]]), which compares and sorts correctly. Declared with TEXT
+     * affinity, as a column declared DATE only would have NUMERIC affinity and store e.g. 2020 as a number
+     */
+    DATE("DATE TEXT");
+
+    private final String declaration;
+
+    ColumnType(String declaration) {
+        this.declaration = declaration;
+    }
+
+    /**
+     * @return type as used in CREATE TABLE
+     */
+    public String getDeclaration() {
+        return declaration;
+    }
+
+    /**
+     * @param declaration type as declared in the table, e.g. as read by PRAGMA table_info
+     * @return the type with this declaration, or for columns not created by BoilerSuit the type matching their
+     * affinity (e.g., INTEGER for INT, REAL for DOUBLE), otherwise TEXT
+     */
+    public static ColumnType fromDeclaration(final String declaration) {
+        for (ColumnType type : values()) {
+            if (type.declaration.equalsIgnoreCase(declaration)) {
+                return type;
+            }
+        }
+
+        // SQLite's rules of type affinity
+        final String upperCaseDeclaration = declaration.toUpperCase();
+        if (upperCaseDeclaration.equals("DATE")) {
+            // as date columns were declared before
+            return DATE;
+        }
+        if (upperCaseDeclaration.contains("INT")) {
+            return INTEGER;
+        }
+        if (upperCaseDeclaration.contains("CHAR") || upperCaseDeclaration.contains("CLOB") || upperCaseDeclaration.contains("TEXT")) {
+            return TEXT;
+        }
+        if (upperCaseDeclaration.contains("REAL") || upperCaseDeclaration.contains("FLOA") || upperCaseDeclaration.contains("DOUB")) {
+            return REAL;
+        }
+        return TEXT;
+    }
+}
@@ -0,0 +1,103 @@
+package ch.brickwork.bsuit.database;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Infers the column types of imported data from a sample of records, and converts values to the inferred types
+ * such that they can be bound natively (Long, Double, or null for empty values).
+ * <p/>
+ * A column is INTEGER (or REAL, or DATE) only if all non-empty values in the sample are. Numbers with leading zeros
+ * (e.g., zip codes, phone numbers) are not considered numbers, since their zeros would get lost. This only protects
+ * the values of the sample, though: a value after the sample which contradicts the inferred type is still stored
+ * according to the affinity of the column (e.g., 007 as 7 in an INTEGER column); such values are reported to the
+ * import log file.
+ */
+class ColumnTypeInference {
+
+    private static final Pattern INTEGER_PATTERN = Pattern.compile("-?(0|[1-9]\\d{0,17})");
+
+    private static final Pattern REAL_PATTERN = Pattern.compile("-?(0|[1-9]\\d*)(\\.\\d+)?([eE][-+]?\\d+)?");
+
+    private static final Pattern DATE_PATTERN = Pattern.compile("\\d{4}-(0[1-9]|1[0-2])-(0[1-9]|[12]\\d|3[01])( \\d{2}:\\d{2}(:\\d{2})?)?");
+
+    /**
+     * @param columnNames column names, as used in the records
+     * @param sample      records to infer the types from
+     * @return type per column, in the order of columnNames
+     */
+    static ColumnType[] infer(final String[] columnNames, final List<Record> sample) {
+        final ColumnType[] types = new ColumnType[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++) {
+            boolean integer = true;
+            boolean real = true;
+            boolean date = true;
+            boolean anyValue = false;
+            for (final Record record : sample) {
+                final Value v = record.getValue(columnNames[i]);
+                if (null == v || null == v.getValue() || v.getValue().toString().isEmpty()) {
+                    continue;
+                }
+
+                anyValue = true;
+                final String value = v.getValue().toString();
+                integer = integer && INTEGER_PATTERN.matcher(value).matches();
+                real = real && REAL_PATTERN.matcher(value).matches();
+                date = date && DATE_PATTERN.matcher(value).matches();
+                if (!integer && !real && !date) {
+                    break;
+                }
+            }
+
+            if (!anyValue) {
+                types[i] = ColumnType.TEXT;
+            } else if (integer) {
+                types[i] = ColumnType.INTEGER;
+            } else if (real) {
+                types[i] = ColumnType.REAL;
+            } else if (date) {
+                types[i] = ColumnType.DATE;
+            } else {
+                types[i] = ColumnType.TEXT;
+            }
+        }
+        return types;
+    }
+
+    /**
+     * converts the values of the record to the given types. Empty values of non-TEXT columns become null. Values not
+     * matching their type (e.g., text in a column inferred as INTEGER from the sample) are reported as TYPE_MISMATCH
+     * and bound as text, i.e. the column's affinity still applies to them: 007 or 1.50 in an INTEGER column are
+     * stored as 7 and 1.5, abc stays abc
+     *
+     * @param record      record to convert, is changed
+     * @param columnNames column names, as used in the record
+     * @param types       type per column, in the order of columnNames
+     * @param diagnostics diagnostics to report values not matching their type to
+     * @param rowNumber   number of the line of the record (without header), for the report
+     */
+    static void convert(final Record record, final String[] columnNames, final ColumnType[] types,
+                        final ImportDiagnostics diagnostics, final int rowNumber) {
+        for (int i = 0; i < columnNames.length; i++) {
+            if (ColumnType.TEXT == types[i]) {
+                continue;
+            }
+
+            final Value v = record.getValue(columnNames[i]);
+            if (null == v || null == v.getValue()) {
+                continue;
+            }
+
+            final String value = v.getValue().toString();
+            if (value.isEmpty()) {
+                v.setValue(null);
+            } else if (ColumnType.INTEGER == types[i] && INTEGER_PATTERN.matcher(value).matches()) {
+                v.setValue(Long.valueOf(value));
+            } else if (ColumnType.REAL == types[i] && REAL_PATTERN.matcher(value).matches()) {
+                v.setValue(Double.valueOf(value));
+            } else if (ColumnType.DATE != types[i] || !DATE_PATTERN.matcher(value).matches()) {
+                diagnostics.report(rowNumber, ImportDiagnostics.Reason.TYPE_MISMATCH, columnNames[i] + " " + types[i] + ": " + value);
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package ch.brickwork.bsuit.database;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads files in BoilerSuit's binary columnar format (*.bsc) written by ColumnarFileWriter, see there for the format.
+ * The records are read block by block, as rows of values in the order of the columns, ready to be bulk inserted. Values
+ * of INTEGER and REAL columns are read as Long or Double, unless they are text.
+ */
+public class ColumnarFileReader implements Closeable {
+
+    private final DataInputStream in;
+
+    private final String[] columnNames;
+
+    private final ColumnType[] columnTypes;
+
+    private boolean end = false;
+
+    /**
+     * reads the header and the schema
+     *
+     * @param in stream the file is read from, closed with this reader
+     * @throws IOException if the stream is not a columnar file or cannot be read
+     */
+    public ColumnarFileReader(final InputStream in) throws IOException {
+        try {
+            final DataInputStream header = new DataInputStream(in);
+            final byte[] magic = new byte[ColumnarFileWriter.MAGIC.length];
+            header.readFully(magic);
+            if (!Arrays.equals(magic, ColumnarFileWriter.MAGIC)) {
+                throw new IOException("Not a BoilerSuit columnar file");
+            }
+            final int flags = header.readUnsignedByte();
+            this.in = (flags & ColumnarFileWriter.FLAG_DEFLATE) != 0 ? new DataInputStream(new InflaterInputStream(in, new Inflater(), 64 * 1024)) : header;
+
+            final int columnCount = readVarInt();
+            columnNames = new String[columnCount];
+            columnTypes = new ColumnType[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                columnNames[i] = this.in.readUTF();
+                columnTypes[i] = readColumnType(this.in.readUTF());
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    private static ColumnType readColumnType(final String name) throws IOException {
+        try {
+            return ColumnType.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt columnar file, unknown column type " + name);
+        }
+    }
+
+    public String[] getColumnNames() {
+        return columnNames;
+    }
+
+    public ColumnType[] getColumnTypes() {
+        return columnTypes;
+    }
+
+    /**
+     * @return rows of the next block, each with the values in the order of the columns, or null if there are no more
+     * @throws IOException if the file cannot be read or is corrupt
+     */
+    public List<Object[]> readBlock() throws IOException {
+        if (end) {
+            return null;
+        }
+        final int rowCount = readVarInt();
+        if (0 == rowCount) {
+            end = true;
+            return null;
+        }
+
+        final List<Object[]> rows = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            rows.add(new Object[columnNames.length]);
+        }
+        for (int column = 0; column < columnNames.length; column++) {
+            final int encoding = in.readUnsignedByte();
+            if (ColumnarFileWriter.ENCODING_DICTIONARY == encoding) {
+                final Object[] dictionary = new Object[readVarInt()];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = toValue(readString(), columnTypes[column]);
+                }
+                for (Object[] values : rows) {
+                    final int index = readVarInt();
+                    if (index >= dictionary.length) {
+                        throw new IOException("Corrupt columnar file, dictionary index " + index + " out of range");
+                    }
+                    values[column] = dictionary[index];
+                }
+            } else if (ColumnarFileWriter.ENCODING_PLAIN == encoding) {
+                for (Object[] values : rows) {
+                    values[column] = toValue(readString(), columnTypes[column]);
+                }
+            } else {
+                throw new IOException("Corrupt columnar file, unknown encoding " + encoding);
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * @return the value as stored in a column of this type: numbers of INTEGER and REAL columns as Long or Double, and
+     * all other values as they are
+     */
+    private static Object toValue(final String value, final ColumnType columnType) {
+        if (null == value || (ColumnType.INTEGER != columnType && ColumnType.REAL != columnType)) {
+            return value;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            // not an integer
+        }
+        if (value.isEmpty() || Character.isWhitespace(value.charAt(0))
+                || (!Character.isDigit(value.charAt(value.length() - 1)) && !value.endsWith("Infinity"))) {
+            // text like " 1.5" or "1.5d", which Double.parseDouble() would accept as well
+            return value;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            // text, which the column may hold as well
+            return value;
+        }
+    }
+
+    /**
+     * @return the string, or null for NULL
+     */
+    private String readString() throws IOException {
+        final int lengthPlusOne = readVarInt();
+        if (0 == lengthPlusOne) {
+            return null;
+        }
+        final byte[] bytes = new byte[lengthPlusOne - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt columnar file, number too long");
+    }
+}
@@ -0,0 +1,159 @@
+package ch.brickwork.bsuit.database;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes records to BoilerSuit's binary columnar format (*.bsc), which is read back by ColumnarFileReader without
+ * detecting encodings and delimiters or parsing text. The format is:
+ * <ul>
+ * <li>header: the magic bytes BSC2 and a flag byte (FLAG_DEFLATE if the rest of the file is deflated)</li>
+ * <li>schema: number of columns, then name and ColumnType of each column</li>
+ * <li>blocks of up to BLOCK_ROWS records: number of records, then the values of each column in turn, either plain
+ * (UTF-8 prefixed by its length + 1, or 0 for NULL) or, if the column has few distinct values in the block, as
+ * dictionary of the distinct values, NULL included, followed by the dictionary index of each value</li>
+ * <li>a block of 0 records marking the end</li>
+ * </ul>
+ * Numbers (counts, lengths and indexes) are written as variable length integers, 7 bits per byte. Values of INTEGER and
+ * REAL columns are written as Long.toString() and Double.toString() of the values as stored, such that they are read
+ * back without losing precision.
+ */
+public class ColumnarFileWriter implements Closeable {
+
+    static final byte[] MAGIC = {'B', 'S', 'C', '2'};
+
+    static final int FLAG_DEFLATE = 1;
+
+    static final int ENCODING_PLAIN = 0;
+
+    static final int ENCODING_DICTIONARY = 1;
+
+    /**
+     * number of records per block, i.e. held in memory before they are written
+     */
+    static final int BLOCK_ROWS = 8192;
+
+    private final DataOutputStream out;
+
+    private final int columnCount;
+
+    private final List<String[]> block = new ArrayList<>();
+
+    /**
+     * @param out         stream the file is written to, closed with this writer
+     * @param columnNames names of the columns
+     * @param columnTypes types of the columns, in the order of columnNames
+     * @param deflate     true to compress the file
+     * @throws IOException if the header cannot be written
+     */
+    public ColumnarFileWriter(final OutputStream out, final String[] columnNames, final ColumnType[] columnTypes, final boolean deflate) throws IOException {
+        out.write(MAGIC);
+        out.write(deflate ? FLAG_DEFLATE : 0);
+        this.out = new DataOutputStream(deflate ? new DeflaterOutputStream(out, new Deflater(Deflater.BEST_SPEED), 64 * 1024) : out);
+        columnCount = columnNames.length;
+
+        writeVarInt(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            this.out.writeUTF(columnNames[i]);
+            this.out.writeUTF(columnTypes[i].name());
+        }
+    }
+
+    /**
+     * adds a record with a value for each column, in the order of the columns. Missing values are written as NULL.
+     * To be read back faithfully, the values must be as stored, e.g. as read by IDatabase.openTypedCursor()
+     */
+    public void write(final Record record) throws IOException {
+        final String[] values = new String[columnCount];
+        int column = 0;
+        for (Value v : record) {
+            if (column < columnCount) {
+                values[column++] = null == v.getValue() ? null : v.getValue().toString();
+            }
+        }
+
+        block.add(values);
+        if (block.size() == BLOCK_ROWS) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * writes the remaining records and the end mark, and closes the stream
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            writeBlock();
+            writeVarInt(0);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (block.isEmpty()) {
+            return;
+        }
+
+        writeVarInt(block.size());
+        for (int column = 0; column < columnCount; column++) {
+            // dictionary, if at most every other value is new
+            final Map<String, Integer> dictionary = new LinkedHashMap<>();
+            boolean dictionaryEncoded = true;
+            for (String[] values : block) {
+                if (!dictionary.containsKey(values[column])) {
+                    if ((dictionary.size() + 1) * 2 > block.size()) {
+                        dictionaryEncoded = false;
+                        break;
+                    }
+                    dictionary.put(values[column], dictionary.size());
+                }
+            }
+
+            if (dictionaryEncoded) {
+                out.writeByte(ENCODING_DICTIONARY);
+                writeVarInt(dictionary.size());
+                for (String value : dictionary.keySet()) {
+                    writeString(value);
+                }
+                for (String[] values : block) {
+                    writeVarInt(dictionary.get(values[column]));
+                }
+            } else {
+                out.writeByte(ENCODING_PLAIN);
+                for (String[] values : block) {
+                    writeString(values[column]);
+                }
+            }
+        }
+        block.clear();
+    }
+
+    private void writeString(final String value) throws IOException {
+        if (null == value) {
+            writeVarInt(0);
+            return;
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length + 1);
+        out.write(bytes);
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+}
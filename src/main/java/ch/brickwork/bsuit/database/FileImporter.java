@@ -1,13 +1,13 @@
 package ch.brickwork.bsuit.database;
 
 import ch.brickwork.bsuit.globals.IBoilersuitApplicationContext;
-import ch.brickwork.bsuit.util.FileIOUtils;
 import ch.brickwork.bsuit.util.TextUtils;
 import org.apache.commons.io.ByteOrderMark;
 import org.apache.commons.io.input.BOMInputStream;
 import org.mozilla.universalchardet.UniversalDetector;
 
 import java.io.*;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.logging.Logger;
 
@@ -19,7 +19,7 @@ import com.opencsv.*;
  * Delimiters are auto-recognized and can be ',' or ';'. Values can be encapsulated in what we call "brackets". This
  * can be either " or '. This is also auto-recognized.
  */
-public class FileImporter implements Iterable<Record> {
+public class FileImporter implements Iterable<Record>, AutoCloseable {
 
     private static final Logger LOG = Logger.getLogger(FileImporter.class.getCanonicalName());
 
@@ -46,7 +46,7 @@ public class FileImporter implements Iterable<Record> {
 
     private static final double GOOD_AVERAGE_COUNT_FOR_DELIMITATOR = 1;
 
-    private String logFilePath;
+    private ImportDiagnostics diagnostics;
 
     private static final String DEFAULT_ENCODING = "US-ASCII";
 
@@ -119,60 +119,117 @@ public class FileImporter implements Iterable<Record> {
                 }
 
                 rowCount++;
+                return toRecord(line, rowCount);
+            }
 
-                final Record record = new Record();
+            @Override
+            public void remove() {
+            }
+        };
 
-                if (line.length > columnNames.length) {
-                    warn("Check Line " + rowCount + "; there were too many values on that line: " + line.length + "/" + columnNames.length);
-                } else {
-                    if (line.length < columnNames.length) {
-                        if (line.length == 1 && line[0].trim().equals("")) {
-                            warn("Ignored empty line at " + rowCount);
-                            appendToLogFile("Ignored empty line at " + rowCount);
-                            return TO_BE_IGNORED_RECORD;
-                        } else {
-                            warn("Check Line " + rowCount + "; not same number of values as in header. Check log file. [" + line.length + "/" + columnNames.length + "]");
-                            appendToLogFile(line.length + "/" + columnNames.length + " values only (row " + rowCount + "): " + line);
-                        }
-                    }
+    }
 
+    /**
+     * @return the delimiter, as given or as detected when the header was read
+     */
+    char getDelimiter() {
+        return commaDelimitator.charAt(0);
+    }
 
-                    for (int i = 0; i < line.length; i++) {
-                        record.put(columnNames[i], line[i]);
-                    }
+    /**
+     * @return a parser splitting a (possibly multi-line) CSV record into its values the same way as the reader of
+     * this importer. Parsers are not thread-safe, so every thread needs its own
+     */
+    CSVParser createParser() {
+        return new CSVParser(getDelimiter());
+    }
+
+    /**
+     * opens the file again, from the beginning (including the header)
+     *
+     * @return reader in the encoding of the file, or null if the file cannot be opened
+     */
+    BufferedReader openReader() {
+        final InputStreamReader stream = openStream();
+        return null == stream ? null : new BufferedReader(stream);
+    }
+
+    /**
+     * turns the values of one line into a record keyed by the column names, warning about lines that do not
+     * match the header. May be called from several threads at the same time
+     *
+     * @param line      values of the line
+     * @param rowNumber number of the line (without header), used in warnings
+     * @return record, or a record for which isToBeIgnored() is true for empty lines
+     */
+    Record toRecord(final String[] line, final int rowNumber) {
+        final Record record = new Record();
+
+        if (line.length > columnNames.length) {
+            warn("Check Line " + rowNumber + "; there were too many values on that line: " + line.length + "/" + columnNames.length);
+            diagnostics.report(rowNumber, ImportDiagnostics.Reason.TOO_MANY_VALUES, line.length + "/" + columnNames.length + " values: " + Arrays.toString(line));
+        } else {
+            if (line.length < columnNames.length) {
+                if (line.length == 1 && line[0].trim().equals("")) {
+                    warn("Ignored empty line at " + rowNumber);
+                    diagnostics.report(rowNumber, ImportDiagnostics.Reason.EMPTY_LINE, null);
+                    return TO_BE_IGNORED_RECORD;
+                } else {
+                    warn("Check Line " + rowNumber + "; not same number of values as in header. Check log file. [" + line.length + "/" + columnNames.length + "]");
+                    diagnostics.report(rowNumber, ImportDiagnostics.Reason.TOO_FEW_VALUES, line.length + "/" + columnNames.length + " values: " + Arrays.toString(line));
                 }
-                return record;
             }
 
-            @Override
-            public void remove() {
+
+            for (int i = 0; i < line.length; i++) {
+                record.put(columnNames[i], line[i]);
             }
-        };
+        }
+        return record;
+    }
 
+    /**
+     * @return number of lines which did not match the header, as written to the import log file so far
+     */
+    public int getProblemCount() {
+        return diagnostics.getCount() - diagnostics.getCount(ImportDiagnostics.Reason.TYPE_MISMATCH);
     }
 
-    private void warn(String s) {
-        if (warnCount < MAX_WARN_COUNT)
-            context.getLog().warn(s);
-        else if (warnCount == MAX_WARN_COUNT)
-            context.getLog().warn("Too many warnings. If you want to see them all, check the import/export logfile in your folder");
-        warnCount++;
+    /**
+     * @return the import log file's diagnostics, e.g. to report values not matching their inferred type
+     */
+    ImportDiagnostics getDiagnostics() {
+        return diagnostics;
     }
 
-    private void initLogFile() {
-        File f = new File(logFilePath);
-        if (f.exists())
-            f.delete();
-        try {
-            f.createNewFile();
-        } catch (IOException e) {
-            context.getLog().err("IO Problem in init" + e.getMessage() + e.getStackTrace());
-            e.printStackTrace();
+    /**
+     * @return the import log file
+     */
+    public File getLogFile() {
+        return diagnostics.getFile();
+    }
+
+    /**
+     * closes the file and writes the remaining problems to the import log file
+     */
+    @Override
+    public void close() {
+        diagnostics.close();
+        if (null != reader) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
     }
 
-    private void appendToLogFile(String s) {
-        FileIOUtils.overwriteFile(logFilePath, FileIOUtils.readCompleteFile(context.getWorkingDirectory(), logFilePath) + "\n" + s);
+    private synchronized void warn(String s) {
+        if (warnCount < MAX_WARN_COUNT)
+            context.getLog().warn(s);
+        else if (warnCount == MAX_WARN_COUNT)
+            context.getLog().warn("Too many warnings. If you want to see them all, check the import/export logfile in your folder");
+        warnCount++;
     }
 
     private InputStreamReader openStream() {
@@ -215,8 +272,7 @@ public class FileImporter implements Iterable<Record> {
      * init and reads first line
      */
     private void init() {
-        logFilePath = context.getWorkingDirectory() + "/" + LOG_FILE_NAME;
-        initLogFile();
+        diagnostics = new ImportDiagnostics(new File(context.getWorkingDirectory(), LOG_FILE_NAME));
 
         rowCount = 0;
 
@@ -1,8 +1,12 @@
 package ch.brickwork.bsuit.database;
 
 import ch.brickwork.bsuit.globals.IBoilersuitApplicationContext;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -18,6 +22,26 @@ public class FileLoader {
 
     private static final int LOG_IMPORT_RECORDS_COUNT_AFTER = 10000;
 
+    /**
+     * number of records the column types are inferred from, if type inference is switched on
+     */
+    private static final int TYPE_INFERENCE_SAMPLE_SIZE = 1000;
+
+    /**
+     * files from this size on are read by a pipeline of threads, if the number of parser threads is not given
+     */
+    private static final long PARALLEL_IMPORT_MIN_FILE_SIZE = 16L * 1024 * 1024;
+
+    /**
+     * maximum number of parser threads chosen automatically
+     */
+    private static final int MAX_AUTO_PARSER_THREADS = 4;
+
+    /**
+     * size in bytes of the buffer columnar files are read through
+     */
+    private static final int COLUMNAR_READ_BUFFER_SIZE = 64 * 1024;
+
 
     public FileLoader(IDatabase database, IBoilersuitApplicationContext context) {
         this.database = database;
@@ -35,48 +59,238 @@ public class FileLoader {
      * @return table name of the table created to store the file contents
      */
     public String loadFile(final String variableName, final String desc, final File file, String encoding, String delim) {
+        return loadFile(variableName, desc, file, encoding, delim, false);
+    }
+
+    /**
+     * Loads file with name "fileName" into the database, under variable name "variableName".
+     * If variable already exists, it is replaced by new variable.
+     *
+     * @param variableName variable to be used to store the file
+     * @param desc         description to be written to the variable table
+     * @param file         file
+     * @param encoding
+     * @param inferTypes   if true, the column types (INTEGER, REAL, DATE, or TEXT) are inferred from the first
+     *                     TYPE_INFERENCE_SAMPLE_SIZE records, and values are stored with these types. Otherwise,
+     *                     all columns are TEXT
+     * @return table name of the table created to store the file contents
+     */
+    public String loadFile(final String variableName, final String desc, final File file, String encoding, String delim,
+                           boolean inferTypes) {
+        return loadFile(variableName, desc, file, encoding, delim, inferTypes, 0);
+    }
+
+    /**
+     * Loads file with name "fileName" into the database, under variable name "variableName".
+     * If variable already exists, it is replaced by new variable. All records are inserted in one transaction, which
+     * is rolled back if reading the file fails.
+     *
+     * @param variableName  variable to be used to store the file
+     * @param desc          description to be written to the variable table
+     * @param file          file
+     * @param encoding
+     * @param inferTypes    if true, the column types (INTEGER, REAL, DATE, or TEXT) are inferred from the first
+     *                      TYPE_INFERENCE_SAMPLE_SIZE records, and values are stored with these types. Otherwise,
+     *                      all columns are TEXT
+     * @param parserThreads if greater than 1, the file is read by one thread and parsed by parserThreads threads
+     *                      (see {@link ParallelFileImporter}), while this thread inserts the records. If 1, the file
+     *                      is read, parsed and inserted by this thread. If 0, the file is read in parallel if it is
+     *                      larger than PARALLEL_IMPORT_MIN_FILE_SIZE and there is more than one processor
+     * @return table name of the table created to store the file contents, null in case of error
+     */
+    public String loadFile(final String variableName, final String desc, final File file, String encoding, String delim,
+                           boolean inferTypes, int parserThreads) {
         final FileImporter fileImporter = new FileImporter(file, encoding, delim, context);
 
-        String fileName = file.getName();
+        try {
+            String fileName = file.getName();
 
-        final String[] columnNames = fileImporter.getColumnNames();
-        if (null != columnNames) {
-            final Variable variable = database.createOrReplaceVariableAndTable(variableName, desc, fileName, columnNames, null);
-            context.getLog().info("Load file \"" + fileName + "\" as variable \"" + variableName + "\"...");
+            final String[] columnNames = fileImporter.getColumnNames();
+            if (null != columnNames) {
+                if (0 == parserThreads) {
+                    parserThreads = chooseParserThreads(file);
+                }
+                final ParallelFileImporter parallelImporter = parserThreads > 1 ? new ParallelFileImporter(fileImporter, parserThreads) : null;
+                final Iterator<Record> fileIterator = null == parallelImporter ? fileImporter.iterator() : parallelImporter;
 
-            List<Record> records = new ArrayList<>();
-            int i = 0;
-            try {
-                for (Record record : fileImporter) {
-                    if(!FileImporter.isToBeIgnored(record)) {
-                        i++;
-                        if (i % LOG_IMPORT_RECORDS_COUNT_AFTER == 0) {
-                            context.getLog().info("Load records from " + fileName + " (" + i + " lines completed)");
-                        }
+                // sample is read ahead and imported like all other records afterwards
+                final List<Record> sample = new ArrayList<>();
+                ColumnType[] columnTypes = null;
+                if (inferTypes) {
+                    while (sample.size() < TYPE_INFERENCE_SAMPLE_SIZE && fileIterator.hasNext()) {
+                        sample.add(fileIterator.next());
+                    }
+                    columnTypes = ColumnTypeInference.infer(columnNames, sample);
+                    logColumnTypes(fileName, columnNames, columnTypes);
+                }
 
-                        if (i % PARTITION_SIZE_IMPORT == 0) {
-                            database.insert(Variable.getTableName(variableName), records);
-                            records = new ArrayList<>();
-                        }
+                final Variable variable = database.createOrReplaceVariableAndTable(variableName, desc, fileName, columnNames, columnTypes, null);
+                context.getLog().info("Load file \"" + fileName + "\" as variable \"" + variableName + "\"" +
+                        (null == parallelImporter ? "" : " using " + parserThreads + " parser threads") + "...");
 
-                        if (record.countValues() > 0) {
-                            records.add(record);
+                // the names the columns were actually created with; records are inserted as rows of their values,
+                // such that the insert statement is built once rather than per record
+                final String tableName = Variable.getTableName(variableName);
+                final List<String> tableColumnNames = database.getTableOrViewColumnNames(tableName);
+                List<Object[]> rows = new ArrayList<>();
+                int i = 0;
+                // number of the line of the record (without header), as in the import log file
+                int rowNumber = 0;
+                database.beginTransaction();
+                try {
+                    final Iterator<Record> sampleIterator = sample.iterator();
+                    while (sampleIterator.hasNext() || fileIterator.hasNext()) {
+                        final Record record = sampleIterator.hasNext() ? sampleIterator.next() : fileIterator.next();
+                        rowNumber++;
+                        if(!FileImporter.isToBeIgnored(record)) {
+                            i++;
+                            if (i % LOG_IMPORT_RECORDS_COUNT_AFTER == 0) {
+                                context.getLog().info("Load records from " + fileName + " (" + i + " lines completed)");
+                            }
+
+                            if (i % PARTITION_SIZE_IMPORT == 0) {
+                                if (!database.insert(tableName, tableColumnNames, rows)) {
+                                    return rollBackImport(tableName,
+                                            "Could not insert the records before row " + rowNumber + ", import of " + fileName + " rolled back");
+                                }
+                                rows = new ArrayList<>();
+                            }
+
+                            if (record.countValues() > 0) {
+                                if (null != columnTypes) {
+                                    ColumnTypeInference.convert(record, columnNames, columnTypes, fileImporter.getDiagnostics(), rowNumber);
+                                }
+                                rows.add(toRow(record));
+                            }
                         }
                     }
+
+                    // write remainder
+                    if (rows.size() > 0 && !database.insert(tableName, tableColumnNames, rows)) {
+                        return rollBackImport(tableName, "Could not insert the last records, import of " + fileName + " rolled back");
+                    }
+                } catch (Exception e) {
+                    // e.g. a parser thread failed: nothing of the file is imported rather than a part of it
+                    e.printStackTrace();
+                    return rollBackImport(tableName, "Unknown but serious problem at row " + i + ", import of " + fileName + " rolled back: " + e.getMessage());
+                } finally {
+                    if (null != parallelImporter) {
+                        parallelImporter.close();
+                    }
+                }
+                database.commitTransaction();
+                if (fileImporter.getProblemCount() > 0) {
+                    context.getLog().warn("Found " + fileImporter.getProblemCount() + " problematic lines in " + fileName + ", see " + fileImporter.getLogFile().getAbsolutePath());
+                }
+                final int typeMismatches = fileImporter.getDiagnostics().getCount(ImportDiagnostics.Reason.TYPE_MISMATCH);
+                if (typeMismatches > 0) {
+                    context.getLog().warn("Found " + typeMismatches + " values not matching the inferred column types in " + fileName
+                            + ", see " + fileImporter.getLogFile().getAbsolutePath());
+                }
+                if (variable != null) {
+                    return variable.getTableName();
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
-                context.getLog().err("Unknown but serious problem at row " + i);
             }
+            return null;
+        } finally {
+            fileImporter.close();
+        }
+    }
 
-            // write remainder
-            if (records.size() > 0) {
-                database.insert(Variable.getTableName(variableName), records);
+    /**
+     * Loads a file in BoilerSuit's columnar format (*.bsc, see {@link ColumnarFileWriter}) into the database, under
+     * variable name "variableName", with the column names and types stored in the file. If variable already exists,
+     * it is replaced by new variable. The blocks of the file are bulk inserted as they are read, all in one transaction,
+     * which is rolled back if the file turns out to be corrupt or a block cannot be inserted.
+     *
+     * @param variableName variable to be used to store the file
+     * @param desc         description to be written to the variable table
+     * @param file         file
+     * @return table name of the table created to store the file contents, null in case of error
+     */
+    public String loadColumnarFile(final String variableName, final String desc, final File file) {
+        final String fileName = file.getName();
+        try (ColumnarFileReader reader = new ColumnarFileReader(new BufferedInputStream(new FileInputStream(file), COLUMNAR_READ_BUFFER_SIZE))) {
+            final Variable variable = database.createOrReplaceVariableAndTable(variableName, desc, fileName, reader.getColumnNames(),
+                    reader.getColumnTypes(), null);
+            if (null == variable) {
+                return null;
             }
-            if (variable != null) {
-                return variable.getTableName();
+            context.getLog().info("Load file \"" + fileName + "\" as variable \"" + variableName + "\"...");
+
+            // the names the columns were actually created with
+            final List<String> columnNames = database.getTableOrViewColumnNames(variable.getTableName());
+            long count = 0;
+            database.beginTransaction();
+            try {
+                List<Object[]> rows;
+                while (null != (rows = reader.readBlock())) {
+                    if (!database.insert(variable.getTableName(), columnNames, rows)) {
+                        return rollBackImport(variable.getTableName(),
+                                "Could not insert the records after record " + count + ", import of " + fileName + " rolled back");
+                    }
+                    count += rows.size();
+                    context.getLog().info("Load records from " + fileName + " (" + count + " lines completed)");
+                }
+            } catch (IOException e) {
+                return rollBackImport(variable.getTableName(), "Could not read " + fileName + " after record " + count + ", import rolled back: "
+                        + e.getMessage());
             }
+            database.commitTransaction();
+            return variable.getTableName();
+        } catch (IOException e) {
+            context.getLog().err("Could not read " + fileName + ": " + e.getMessage());
+            return null;
         }
+    }
+
+    /**
+     * rolls back the transaction of an import and drops the table imported into, such that nothing of the file is
+     * imported rather than a part of it
+     *
+     * @param tableName table the file was imported into
+     * @param message   error to be logged
+     * @return null, as returned by the load methods in case of error
+     */
+    private String rollBackImport(final String tableName, final String message) {
+        context.getLog().err(message);
+        database.rollbackTransaction();
+        database.dropIfExistsTable(tableName);
         return null;
     }
+
+    /**
+     * @return values of the record, in the order of the columns of the file. Records of lines with too few values are
+     * shorter, the missing columns are left null
+     */
+    private static Object[] toRow(final Record record) {
+        final Object[] row = new Object[record.countValues()];
+        int i = 0;
+        for (Value v : record) {
+            row[i++] = v.getValue();
+        }
+        return row;
+    }
+
+    private int chooseParserThreads(final File file) {
+        final int processors = Runtime.getRuntime().availableProcessors();
+        if (file.length() < PARALLEL_IMPORT_MIN_FILE_SIZE || processors < 2) {
+            return 1;
+        }
+        // one processor is left to the reader and the writer
+        return Math.max(2, Math.min(processors - 1, MAX_AUTO_PARSER_THREADS));
+    }
+
+    private void logColumnTypes(final String fileName, final String[] columnNames, final ColumnType[] columnTypes) {
+        final StringBuilder message = new StringBuilder("Column types of " + fileName + ": ");
+        for (int i = 0; i < columnNames.length; i++) {
+            if (i > 0) {
+                message.append(", ");
+            }
+            message.append(columnNames[i]);
+            message.append(" ");
+            message.append(columnTypes[i]);
+        }
+        context.getLog().info(message.toString());
+    }
 }
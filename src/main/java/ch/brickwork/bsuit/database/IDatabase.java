@@ -170,6 +170,20 @@ public interface IDatabase {
     Variable createOrReplaceVariableAndTable(final String variableName, final String desc, final String fileName,
                                              final String[] columnNames, final String[] primaryKeys);
 
+    /**
+     * @param variableName name of variable
+     * @param desc         description of variable
+     * @param fileName     name of file
+     * @param columnNames  array of strings contains column names
+     * @param columnTypes  types of the columns, in the order of columnNames; if null, all columns are TEXT
+     * @param primaryKeys  array of strings contains PK names
+     *
+     * @return created Variable
+     */
+
+    Variable createOrReplaceVariableAndTable(final String variableName, final String desc, final String fileName,
+                                             final String[] columnNames, final ColumnType[] columnTypes, final String[] primaryKeys);
+
     /**
      * similar as createTempName, but enforcing that "useThisAsPartOfName" is contained in the name.
      * BoilerSuit will use this to increase readability of certain temporary or system-created table
@@ -256,8 +270,38 @@ public interface IDatabase {
      *
      * @param tableName table into which records are inserted
      * @param records   records to be inserted
+     * @return false if the records could not be inserted. Within a transaction, only they are rolled back
      */
-    void insert(final String tableName, final List<Record> records);
+    boolean insert(final String tableName, final List<Record> records);
+
+    /**
+     * inserts rows of values into table, all of them with the same columns. Unlike insert(tableName, records), the
+     * column names are neither sanitized nor collected per record, so the caller prepares them once for all rows
+     *
+     * @param tableName   table into which the rows are inserted
+     * @param columnNames names of the columns, as in the table
+     * @param rows        values of each row, in the order of the columns. A row shorter than the columns leaves
+     *                    the remaining columns null
+     * @return false if the rows could not be inserted. Within a transaction, only they are rolled back
+     */
+    boolean insert(final String tableName, final List<String> columnNames, final List<Object[]> rows);
+
+    /**
+     * starts a transaction spanning the following inserts, e.g. to bulk load a file. The inserted records are
+     * only stored for good by commitTransaction(). Does nothing if a transaction is running already
+     */
+    void beginTransaction();
+
+    /**
+     * commits the transaction started by beginTransaction(). Does nothing if no transaction is running
+     */
+    void commitTransaction();
+
+    /**
+     * rolls back the transaction started by beginTransaction(), discarding everything inserted since. Does nothing
+     * if no transaction is running
+     */
+    void rollbackTransaction();
 
     /**
      * executes an SQL statement
@@ -267,6 +311,41 @@ public interface IDatabase {
      */
     List<Record> prepare(final String sql);
 
+    /**
+     * executes an SQL query and returns a cursor over its result, instead of reading the whole result into a list
+     *
+     * @param sql query
+     * @return cursor which must be closed by the caller, or null in case of error
+     */
+    IRecordCursor openCursor(final String sql);
+
+    /**
+     * like openCursor(sql), but the values are read as stored (e.g., Long or Double) rather than as strings, and null
+     * values as null rather than as empty strings
+     *
+     * @param sql query
+     * @return cursor which must be closed by the caller, or null in case of error
+     */
+    IRecordCursor openTypedCursor(final String sql);
+
+    /**
+     * opens a cursor over all records from table or view "tableOrViewName"
+     *
+     * @param tableOrViewName name of table of view to read from
+     * @return cursor which must be closed by the caller, or null in case of error
+     */
+    IRecordCursor openCursor(final String tableOrViewName, final String sortField, Boolean sortAsc);
+
+    /**
+     * executes an SQL query and passes each record of its result to the callback, without reading the
+     * whole result into a list
+     *
+     * @param sql      query
+     * @param callback receives the records; may stop reading by returning false
+     * @return false in case of error
+     */
+    boolean forEachRecord(final String sql, final IRecordCallback callback);
+
     /**
      * Rename table name;
      *
@@ -294,4 +373,19 @@ public interface IDatabase {
      * @return
      */
     String getRowIdKeyWord();
+
+    /**
+     * @return number of lookups of tables, views and their columns answered from the schema cache
+     */
+    long getSchemaCacheHits();
+
+    /**
+     * @return number of lookups of tables, views and their columns which had to query the database
+     */
+    long getSchemaCacheMisses();
+
+    /**
+     * releases the connection (and the threads) held by the database. The database must not be used afterwards
+     */
+    void close();
 }
@@ -17,4 +17,19 @@ public interface IFileBasedDatabase {
      * @TODO this is not sooooo logical of course
      */
     boolean changeDBFileDirectory(String newPath);
+
+    /**
+     * @return true if the database is kept in memory and the file is only written by snapshots (and when the
+     * database is closed). An existing file is loaded into memory when the database is opened. In memory, the
+     * path cannot be changed to a directory holding a database file already
+     */
+    boolean isInMemory();
+
+    /**
+     * writes the current state of the database to a file. The file is overwritten if it exists
+     *
+     * @param fileName file to write to
+     * @return true if successful
+     */
+    boolean snapshot(String fileName);
 }
@@ -0,0 +1,13 @@
+package ch.brickwork.bsuit.database;
+
+/**
+ * Callback receiving the records of a query one by one, see IDatabase.forEachRecord
+ */
+public interface IRecordCallback {
+
+    /**
+     * @param record current record
+     * @return false to stop reading further records
+     */
+    boolean handle(Record record);
+}
@@ -0,0 +1,30 @@
+package ch.brickwork.bsuit.database;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Forward-only cursor over the result of a query. Records are read from the database while iterating, such that
+ * large tables can be scanned in one pass without holding them on the heap. A cursor must be closed
+ * after use, unless it has been iterated to its end.
+ * <p/>
+ * remove() is not supported.
+ */
+public interface IRecordCursor extends Iterator<Record>, AutoCloseable {
+
+    /**
+     * @return column names of the result, in the order of the select list
+     */
+    List<String> getColumnNames();
+
+    /**
+     * @return true if reading from the database failed. The cursor then ends early, i.e., hasNext() returns false
+     */
+    boolean isFailed();
+
+    /**
+     * releases the underlying statement. Calling close() more than once has no effect
+     */
+    @Override
+    void close();
+}
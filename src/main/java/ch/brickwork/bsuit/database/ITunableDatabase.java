@@ -0,0 +1,27 @@
+package ch.brickwork.bsuit.database;
+
+import java.util.List;
+
+/**
+ * implemented by databases whose performance settings can be switched between predefined profiles
+ */
+public interface ITunableDatabase {
+
+    /**
+     * @return names of the available performance profiles
+     */
+    List<String> getPerformanceProfileNames();
+
+    /**
+     * @return name of the current performance profile
+     */
+    String getPerformanceProfileName();
+
+    /**
+     * applies the performance profile to the open connection, and to all connections opened later on
+     *
+     * @param profileName name of the profile, case insensitive
+     * @return false if there is no such profile, or if it could not be applied
+     */
+    boolean setPerformanceProfile(String profileName);
+}
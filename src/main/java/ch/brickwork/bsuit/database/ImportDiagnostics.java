@@ -0,0 +1,195 @@
+package ch.brickwork.bsuit.database;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Log file of the problems found while importing a file, one line per problem with the row number, the reason and
+ * details, separated by tabs (such that the log can be imported itself).
+ * <p/>
+ * Problems are handed to a writer thread through a bounded queue and appended to the file in a buffered way; the
+ * file is flushed whenever the writer thread has nothing left to do. Importing threads never wait for the disk,
+ * unless the queue is full. The writer thread is only started with the first problem. close() writes all
+ * pending problems.
+ */
+class ImportDiagnostics implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(ImportDiagnostics.class.getCanonicalName());
+
+    /**
+     * maximum number of problems waiting to be written
+     */
+    private static final int QUEUE_CAPACITY = 10000;
+
+    private static final String WRITER_THREAD_NAME = "boilersuit-import-diagnostics";
+
+    private static final String HEADER = "row\treason\tdetails";
+
+    /**
+     * tells the writer thread to stop
+     */
+    private static final String END = new String("end");
+
+    /**
+     * Problems found in imported lines. TYPE_MISMATCH is reported per value not matching the type inferred for its
+     * column
+     */
+    enum Reason {
+        EMPTY_LINE, TOO_MANY_VALUES, TOO_FEW_VALUES, TYPE_MISMATCH
+    }
+
+    private final File file;
+
+    private final BlockingQueue<String> pending = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    private final Map<Reason, AtomicInteger> counts = new EnumMap<>(Reason.class);
+
+    private Thread writer;
+
+    private boolean closed;
+
+    /**
+     * set if the log file cannot be written, problems are not reported anymore then
+     */
+    private volatile boolean failed;
+
+    /**
+     * empties the log file, or creates it
+     *
+     * @param file log file
+     */
+    ImportDiagnostics(final File file) {
+        this.file = file;
+        for (Reason reason : Reason.values()) {
+            counts.put(reason, new AtomicInteger());
+        }
+
+        try {
+            new FileOutputStream(file, false).close();
+        } catch (IOException e) {
+            LOG.severe("Cannot create " + file.getAbsolutePath() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the log file
+     */
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * appends a problem to the log file. May be called from several threads at the same time
+     *
+     * @param rowNumber number of the line (without header)
+     * @param reason    problem
+     * @param details   further information, such as the values of the line
+     */
+    void report(final int rowNumber, final Reason reason, final String details) {
+        counts.get(reason).incrementAndGet();
+        final String line = rowNumber + "\t" + reason + "\t" + (null == details ? "" : details.replaceAll("[\t\r\n]", " "));
+        synchronized (this) {
+            if (closed || failed) {
+                return;
+            }
+            if (null == writer) {
+                startWriter();
+            }
+        }
+        try {
+            pending.put(line);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param reason problem
+     * @return number of lines reported with that problem
+     */
+    int getCount(final Reason reason) {
+        return counts.get(reason).get();
+    }
+
+    /**
+     * @return number of lines reported with any problem
+     */
+    int getCount() {
+        int count = 0;
+        for (AtomicInteger reasonCount : counts.values()) {
+            count += reasonCount.get();
+        }
+        return count;
+    }
+
+    /**
+     * writes all pending problems and stops the writer thread
+     */
+    @Override
+    public void close() {
+        final Thread writerToStop;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            writerToStop = writer;
+        }
+        if (null != writerToStop && !failed) {
+            try {
+                pending.put(END);
+                writerToStop.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void startWriter() {
+        writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                write();
+            }
+        }, WRITER_THREAD_NAME);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private void write() {
+        try (final Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8))) {
+            out.write(HEADER);
+            out.write('\n');
+            String line = pending.take();
+            while (END != line) {
+                out.write(line);
+                out.write('\n');
+
+                line = pending.poll();
+                if (null == line) {
+                    // nothing left to do for the moment
+                    out.flush();
+                    line = pending.take();
+                }
+            }
+        } catch (IOException e) {
+            LOG.severe("Cannot write to " + file.getAbsolutePath() + ": " + e.getMessage());
+            // do not block the importing threads
+            failed = true;
+            pending.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
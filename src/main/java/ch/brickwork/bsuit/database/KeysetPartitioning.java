@@ -0,0 +1,129 @@
+package ch.brickwork.bsuit.database;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a table in partitions of at most partitionSize records, in the order of the row id. Each partition is
+ * sought by its key ("WHERE rowid > last row id of previous partition"), such that, other than with
+ * LIMIT offset,length, the database does not have to skip all preceding records again for each partition.
+ * <p/>
+ * Views have no row id; they are read using LIMIT offset,length as before.
+ * <p/>
+ * Every call of iterator() starts reading from the beginning of the table again.
+ */
+public class KeysetPartitioning implements Iterable<List<Record>> {
+
+    /**
+     * alias under which the row id is selected along with the attributes of the table
+     */
+    private static final String KEY_ALIAS = "bs_keyset_rowid";
+
+    private final IDatabase database;
+
+    private final String tableOrViewName;
+
+    private final int partitionSize;
+
+    private final boolean keyset;
+
+    /**
+     * @param database        database to read from
+     * @param tableOrViewName name of table or view to read from
+     * @param partitionSize   maximum number of records per partition
+     */
+    public KeysetPartitioning(final IDatabase database, final String tableOrViewName, final int partitionSize)
+    {
+        this.database = database;
+        this.tableOrViewName = tableOrViewName;
+        this.partitionSize = partitionSize;
+        this.keyset = database.existsTable(tableOrViewName);
+    }
+
+    @Override
+    public Iterator<List<Record>> iterator()
+    {
+        return new Iterator<List<Record>>() {
+
+            private List<Record> nextPartition;
+
+            private boolean exhausted;
+
+            private Long lastKey;
+
+            private long offset;
+
+            @Override
+            public boolean hasNext()
+            {
+                if (null == nextPartition && !exhausted) {
+                    nextPartition = keyset ? readByKey() : readByOffset();
+                    if (null == nextPartition || nextPartition.isEmpty()) {
+                        nextPartition = null;
+                        exhausted = true;
+                    } else if (nextPartition.size() < partitionSize) {
+                        // last partition, no need to ask the database again
+                        exhausted = true;
+                    }
+                }
+                return null != nextPartition;
+            }
+
+            @Override
+            public List<Record> next()
+            {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final List<Record> partition = nextPartition;
+                nextPartition = null;
+                return partition;
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+
+            private List<Record> readByKey()
+            {
+                final String rowId = database.getRowIdKeyWord();
+                final StringBuilder sql = new StringBuilder("SELECT ");
+                sql.append(rowId).append(" AS ").append(KEY_ALIAS).append(", * FROM ").append(tableOrViewName);
+                if (null != lastKey) {
+                    sql.append(" WHERE ").append(rowId).append(" > ").append(lastKey);
+                }
+                sql.append(" ORDER BY ").append(rowId).append(" LIMIT ").append(partitionSize);
+
+                final List<Record> recordsWithKey = database.prepare(sql.toString());
+                if (null == recordsWithKey || recordsWithKey.isEmpty()) {
+                    return recordsWithKey;
+                }
+
+                // remember where to continue, and hand out the records without the key
+                lastKey = Long.parseLong(recordsWithKey.get(recordsWithKey.size() - 1).getValue(KEY_ALIAS).getValue().toString());
+                final List<Record> records = new ArrayList<>(recordsWithKey.size());
+                for (final Record recordWithKey : recordsWithKey) {
+                    final Record record = new Record();
+                    for (final Value v : recordWithKey) {
+                        if (!KEY_ALIAS.equals(v.getAttributeName())) {
+                            record.put(v.getAttributeName(), v.getValue());
+                        }
+                    }
+                    records.add(record);
+                }
+                return records;
+            }
+
+            private List<Record> readByOffset()
+            {
+                final List<Record> records = database.getAllRecordsFromTableOrView(tableOrViewName, offset, partitionSize, null, null);
+                offset += partitionSize;
+                return records;
+            }
+        };
+    }
+}
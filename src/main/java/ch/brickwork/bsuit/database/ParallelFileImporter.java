@@ -0,0 +1,351 @@
+package ch.brickwork.bsuit.database;
+
+import com.opencsv.CSVParser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Reads the records of a CSV file in a pipeline, as an alternative to the iterator of {@link FileImporter} for
+ * large files:
+ * <ul>
+ * <li>a reader thread reads the lines of the file and cuts them into chunks of CHUNK_SIZE records. It only finds
+ * where a record ends: a record spans several lines as long as a quoted value is open, which the reader tells by
+ * following the quotes like the parser does (see QuoteTracker), without splitting the record</li>
+ * <li>parserThreads workers parse the raw lines of the chunks and turn them into records</li>
+ * <li>the consumer (the writer, calling next()) gets the records in the order of the file</li>
+ * </ul>
+ * The chunks are passed on in a bounded queue, such that the reader cannot run away from a slower writer.
+ * The iterator must be closed when not read to the end.
+ */
+class ParallelFileImporter implements Iterator<Record>, AutoCloseable {
+
+    /**
+     * number of records per chunk handed to one worker
+     */
+    private static final int CHUNK_SIZE = 1000;
+
+    /**
+     * number of chunks read ahead per worker
+     */
+    private static final int CHUNKS_AHEAD_PER_THREAD = 4;
+
+    private static final String READER_THREAD_NAME = "boilersuit-import-reader";
+
+    private static final String PARSER_THREAD_NAME = "boilersuit-import-parser";
+
+    /**
+     * marks the end of the file in the queue
+     */
+    private static final Future<List<Record>> END_OF_FILE = new FutureTask<>(new Callable<List<Record>>() {
+        @Override
+        public List<Record> call() {
+            return null;
+        }
+    });
+
+    private final FileImporter fileImporter;
+
+    private final ExecutorService parsers;
+
+    private final BlockingQueue<Future<List<Record>>> chunks;
+
+    private final Thread reader;
+
+    private Iterator<Record> currentChunk = Collections.<Record>emptyList().iterator();
+
+    private boolean endOfFile;
+
+    /**
+     * starts reading and parsing the file right away
+     *
+     * @param fileImporter  importer of the file, which has read the header already
+     * @param parserThreads number of workers parsing chunks at the same time
+     */
+    ParallelFileImporter(final FileImporter fileImporter, final int parserThreads) {
+        this.fileImporter = fileImporter;
+        chunks = new ArrayBlockingQueue<>(parserThreads * CHUNKS_AHEAD_PER_THREAD);
+        parsers = Executors.newFixedThreadPool(parserThreads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, PARSER_THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                read();
+            }
+        }, READER_THREAD_NAME);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!currentChunk.hasNext() && !endOfFile) {
+            final List<Record> records = takeChunk();
+            if (null == records) {
+                endOfFile = true;
+            } else {
+                currentChunk = records.iterator();
+            }
+        }
+        return currentChunk.hasNext();
+    }
+
+    @Override
+    public Record next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentChunk.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * stops reading and parsing
+     */
+    @Override
+    public void close() {
+        reader.interrupt();
+        parsers.shutdownNow();
+    }
+
+    /**
+     * @return records of the next chunk in the file, or null at the end of the file
+     */
+    private List<Record> takeChunk() {
+        try {
+            final Future<List<Record>> chunk = chunks.take();
+            return END_OF_FILE == chunk ? null : chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading file", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * reader stage: reads the lines after the header and passes them on in chunks
+     */
+    private void read() {
+        final CSVParser parser = fileImporter.createParser();
+        final char quote = parser.getQuotechar();
+        try (final BufferedReader lines = fileImporter.openReader()) {
+            if (null == lines) {
+                throw new IOException("Could not open file");
+            }
+
+            // the header has been read by the file importer already
+            final String header = lines.readLine();
+            if (null != header) {
+                final QuoteTracker tracker = new QuoteTracker(parser);
+                if (tracker.isOpenAfter(header)) {
+                    readRecordLines(lines, header, tracker);
+                }
+            }
+
+            int rowNumber = 0;
+            Chunk chunk = new Chunk(rowNumber + 1);
+            String line;
+            while ((line = lines.readLine()) != null) {
+                final QuoteTracker tracker = line.indexOf(quote) < 0 ? null : new QuoteTracker(parser);
+                if (null == tracker || !tracker.isOpenAfter(line)) {
+                    chunk.add(line);
+                } else {
+                    chunk.add(readRecordLines(lines, line, tracker));
+                }
+                rowNumber++;
+
+                if (chunk.size() == CHUNK_SIZE) {
+                    chunks.put(parsers.submit(chunk));
+                    chunk = new Chunk(rowNumber + 1);
+                }
+            }
+            if (chunk.size() > 0) {
+                chunks.put(parsers.submit(chunk));
+            }
+            chunks.put(END_OF_FILE);
+        } catch (InterruptedException | RejectedExecutionException e) {
+            // closed before the end of the file
+        } catch (final Exception e) {
+            // hand the problem to the consumer, which would wait for the next chunk forever otherwise
+            final FutureTask<List<Record>> failure = new FutureTask<>(new Callable<List<Record>>() {
+                @Override
+                public List<Record> call() throws Exception {
+                    throw e;
+                }
+            });
+            failure.run();
+            try {
+                chunks.put(failure);
+            } catch (InterruptedException ignored) {
+                // closed before the end of the file
+            }
+        }
+    }
+
+    /**
+     * reads the lines of a record, as long as a quoted value is open (just like CSVReader does), without splitting them
+     *
+     * @param firstLine first line of the record, after which the tracker found a quoted value open
+     * @return raw lines of the record
+     */
+    private static String[] readRecordLines(final BufferedReader lines, final String firstLine, final QuoteTracker tracker) throws IOException {
+        final List<String> recordLines = new ArrayList<>();
+        recordLines.add(firstLine);
+        boolean open = true;
+        String line;
+        while (open && (line = lines.readLine()) != null) {
+            recordLines.add(line);
+            open = tracker.isOpenAfter(line);
+        }
+        return recordLines.toArray(new String[recordLines.size()]);
+    }
+
+    /**
+     * follows the quotes of the lines of one record the way CSVParser does, to tell whether a quoted value is still
+     * open at the end of a line. Like in the parser, the escape character and doubled quotes apply within quoted
+     * values as well as within unquoted ones, e.g. in x,a\"b the quote is part of the value
+     */
+    private static class QuoteTracker {
+
+        private final char separator;
+
+        private final char quote;
+
+        private final char escape;
+
+        private boolean inQuotes;
+
+        /**
+         * true within a value, quoted or not, as CSVParser's field of the same name
+         */
+        private boolean inField;
+
+        private QuoteTracker(final CSVParser parser) {
+            separator = parser.getSeparator();
+            quote = parser.getQuotechar();
+            escape = parser.getEscape();
+        }
+
+        /**
+         * @param line next line of the record
+         * @return true if a quoted value is open at the end of the line, i.e. the record goes on on the next line
+         */
+        private boolean isOpenAfter(final String line) {
+            for (int i = 0; i < line.length(); i++) {
+                final char c = line.charAt(i);
+                final boolean escapable = (inQuotes || inField) && i + 1 < line.length();
+                if (c == escape) {
+                    if (escapable && (line.charAt(i + 1) == quote || line.charAt(i + 1) == escape)) {
+                        i++;
+                    }
+                } else if (c == quote) {
+                    if (escapable && line.charAt(i + 1) == quote) {
+                        i++;
+                    } else {
+                        inQuotes = !inQuotes;
+                    }
+                    inField = !inField;
+                } else if (c == separator && !inQuotes) {
+                    inField = false;
+                } else {
+                    inField = true;
+                }
+            }
+            if (!inQuotes) {
+                inField = false;
+            }
+            return inQuotes;
+        }
+    }
+
+    /**
+     * consecutive records of the file, each as its raw line or - if spanning several lines - its raw lines. Turned
+     * into records by a worker
+     */
+    private class Chunk implements Callable<List<Record>> {
+
+        private final int firstRowNumber;
+
+        private final List<Object> lineOrLines = new ArrayList<>(CHUNK_SIZE);
+
+        private Chunk(final int firstRowNumber) {
+            this.firstRowNumber = firstRowNumber;
+        }
+
+        private void add(final String line) {
+            lineOrLines.add(line);
+        }
+
+        private void add(final String[] lines) {
+            lineOrLines.add(lines);
+        }
+
+        private int size() {
+            return lineOrLines.size();
+        }
+
+        @Override
+        public List<Record> call() throws IOException {
+            CSVParser parser = fileImporter.createParser();
+            final List<Record> records = new ArrayList<>(lineOrLines.size());
+            int rowNumber = firstRowNumber;
+            for (final Object recordLineOrLines : lineOrLines) {
+                final String[] values;
+                if (recordLineOrLines instanceof String) {
+                    values = parser.parseLine((String) recordLineOrLines);
+                } else {
+                    values = parseLines(parser, (String[]) recordLineOrLines);
+                    if (parser.isPending()) {
+                        // the value is still open at the end of the file; must not spill over into the next record
+                        parser = fileImporter.createParser();
+                    }
+                }
+                // records to be ignored (empty lines) are handed out as well, such that the consumer can count
+                // the rows just like with the iterator of the file importer
+                records.add(fileImporter.toRecord(values, rowNumber++));
+            }
+            return records;
+        }
+
+        /**
+         * splits the lines of a record spanning several lines, just like CSVReader does
+         */
+        private String[] parseLines(final CSVParser parser, final String[] lines) throws IOException {
+            String[] values = parser.parseLineMulti(lines[0]);
+            for (int i = 1; i < lines.length; i++) {
+                final String[] moreValues = parser.parseLineMulti(lines[i]);
+                final String[] combined = new String[values.length + moreValues.length];
+                System.arraycopy(values, 0, combined, 0, values.length);
+                System.arraycopy(moreValues, 0, combined, values.length, moreValues.length);
+                values = combined;
+            }
+            return values;
+        }
+    }
+}
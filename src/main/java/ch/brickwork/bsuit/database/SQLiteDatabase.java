@@ -2,13 +2,17 @@ package ch.brickwork.bsuit.database;
 
 import com.almworks.sqlite4java.*;
 import ch.brickwork.bsuit.util.ILog;
+import ch.brickwork.bsuit.util.TextUtils;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.*;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Hashtable;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * implements the database interface for a SQLite database, using the almworks sqlite4java library
@@ -16,7 +20,7 @@ import java.util.List;
  * @author Marcel Camporelli
  *         (camporelli@brickwork.ch)
  */
-public class SQLiteDatabase extends AbstractSQLDatabase implements IFileBasedDatabase {
+public class SQLiteDatabase extends AbstractSQLDatabase implements IFileBasedDatabase, ITunableDatabase {
 
     public static final long SQLITE_BUSY_TIMEOUT = 1000L;
 
@@ -25,10 +29,80 @@ public class SQLiteDatabase extends AbstractSQLDatabase implements IFileBasedDat
      */
     private static final String FILE_NAME = "data.db";
 
-    private static String FILE_PATH;
+    /**
+     * name of the thread owning the connection (one per database instance)
+     */
+    private static final String QUEUE_THREAD_NAME = "boilersuit-sqlite";
+
+    /**
+     * maximum number of compiled (parameterised) statements kept per connection
+     */
+    private static final int STATEMENT_CACHE_SIZE = 32;
+
+    /**
+     * number of records a cursor reads from the database at once
+     */
+    private static final int CURSOR_FETCH_SIZE = 500;
+
+    /**
+     * name of the savepoint records are inserted under within a transaction
+     */
+    private static final String INSERT_SAVEPOINT = "bs_insert";
+
+    /**
+     * name under which the database file is attached to be loaded into memory
+     */
+    private static final String LOAD_SCHEMA = "bs_load";
+
+    private String filePath;
+
+    /**
+     * if true, the database lives in memory only, and is written to the file by snapshot() and when closed
+     */
+    private final boolean inMemory;
+
+    /**
+     * set if an existing database file could not be loaded into memory, in which case it must not be overwritten
+     * when the database is closed
+     */
+    private boolean dbFileNotLoaded;
+
+    /**
+     * long-lived job queue owning the one and only connection to the database file. All statements are
+     * executed as jobs on this queue, such that the file is opened once and not once per statement
+     */
+    private SQLiteQueue queue;
+
+    /**
+     * compiled statements of the connection of the queue; only to be used from within jobs
+     */
+    private SQLiteStatementCache statementCache;
+
+    /**
+     * pragmas applied whenever the connection is opened
+     */
+    private volatile SQLitePerformanceProfile performanceProfile = SQLitePerformanceProfile.DEFAULT;
+
+    /**
+     * closes the database when the JVM exits; registered while the connection is open only, such that closed
+     * databases are not kept reachable by the runtime
+     */
+    private Thread shutdownHook;
 
     public SQLiteDatabase(String filePath, ILog log) {
-        FILE_PATH = filePath;
+        this(filePath, log, false);
+    }
+
+    /**
+     * @param filePath directory of the database file
+     * @param log      log
+     * @param inMemory if true, the database is kept in memory, and only written to the database file (data.db in
+     *                 filePath) as a snapshot on demand and when the database is closed. If the database file
+     *                 exists, it is loaded into memory first. If false, the database file is used directly
+     */
+    public SQLiteDatabase(String filePath, ILog log, boolean inMemory) {
+        this.filePath = filePath;
+        this.inMemory = inMemory;
         initLogger();
         initDatabase();
         openConnection();
@@ -59,27 +133,183 @@ public class SQLiteDatabase extends AbstractSQLDatabase implements IFileBasedDat
     }
 
     /**
-     * Open connection to the SQLite DB file.
+     * Open connection to the SQLite DB file. If a connection is already open, it is closed first. The connection
+     * is held by a queue thread until {@link #close()} is called or the path of the database changes.
      */
     @Override
     protected void openConnection() {
-        final SQLiteConnection db = new SQLiteConnection(new File(getDbFilePath()));
+        close();
+        // the schema may be different after reopening (e.g. another file)
+        invalidateSchemaCache();
+
+        final SQLiteStatementCache cache = new SQLiteStatementCache(STATEMENT_CACHE_SIZE);
+        statementCache = cache;
+        queue = new SQLiteQueue(inMemory ? null : new File(getDbFilePath()), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, QUEUE_THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            }
+        }) {
+            @Override
+            protected void initConnection(SQLiteConnection connection) throws SQLiteException {
+                connection.setBusyTimeout(SQLITE_BUSY_TIMEOUT);
+                applyPerformanceProfile(connection, performanceProfile);
+            }
+
+            @Override
+            protected void disposeConnection(SQLiteConnection connection) {
+                cache.clear();
+                super.disposeConnection(connection);
+            }
+        };
+        queue.start();
+        registerShutdownHook();
+
+        if (inMemory) {
+            dbFileNotLoaded = !loadDbFile();
+        }
+    }
+
+    /**
+     * copies the tables (with their contents), indexes, views and triggers of the database file, if it exists, to
+     * the in-memory database
+     *
+     * @return false if the file exists but could not be loaded
+     */
+    private boolean loadDbFile() {
+        final File file = new File(getDbFilePath());
+        if (!file.isFile()) {
+            return true;
+        }
+
+        log.info("Loading " + file.getAbsolutePath() + " into memory");
+        return execute(new SQLiteJob<Object>() {
+            protected Object job(SQLiteConnection connection) throws DatabaseException {
+                try {
+                    connection.exec("ATTACH DATABASE '" + file.getAbsolutePath().replace("'", "''") + "' AS " + LOAD_SCHEMA);
+                    try {
+                        // tables first, such that indexes, views and triggers find them
+                        final List<String[]> entries = new ArrayList<>();
+                        final SQLiteStatement s = connection.prepare("SELECT type, name, sql FROM " + LOAD_SCHEMA
+                                + ".sqlite_master WHERE sql IS NOT NULL AND name NOT LIKE 'sqlite_%' ORDER BY type <> 'table', rowid", false);
+                        try {
+                            while (s.step()) {
+                                entries.add(new String[] {s.columnString(0), s.columnString(1), s.columnString(2)});
+                            }
+                        } finally {
+                            s.dispose();
+                        }
+
+                        connection.exec("BEGIN");
+                        for (String[] entry : entries) {
+                            connection.exec(entry[2]);
+                            if ("table".equals(entry[0])) {
+                                final String name = "\"" + entry[1].replace("\"", "\"\"") + "\"";
+                                connection.exec("INSERT INTO main." + name + " SELECT * FROM " + LOAD_SCHEMA + "." + name);
+                            }
+                        }
+                        connection.exec("COMMIT");
+                    } finally {
+                        if (!connection.getAutoCommit()) {
+                            connection.exec("ROLLBACK");
+                        }
+                        connection.exec("DETACH DATABASE " + LOAD_SCHEMA);
+                    }
+                } catch (SQLiteException e) {
+                    log.err("Could not load " + file.getAbsolutePath() + " into memory: " + e.getMessage());
+                    throw new DatabaseException(e.getMessage());
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Stops the queue (after all pending jobs are done) and closes the connection to the SQLite DB file.
+     * An in-memory database is written to the database file before. Does nothing if no connection is open.
+     */
+    @Override
+    public void close() {
+        if (queue == null) {
+            return;
+        }
+
+        if (inMemory) {
+            if (dbFileNotLoaded) {
+                log.err("Database not written to " + getDbFilePath() + ", as the existing file could not be loaded before");
+            } else {
+                snapshot(getDbFilePath());
+            }
+        }
+
         try {
-            db.open(true);
-        } catch (SQLiteException e) {
-            log.err(e.getMessage() + " - " + getDbFilePath());
-        } finally {
-            db.dispose();
+            queue.stop(true).join();
+        } catch (InterruptedException e) {
+            log.err("Interrupted while closing " + getDbFilePath());
+            Thread.currentThread().interrupt();
+        }
+        queue = null;
+        removeShutdownHook();
+    }
+
+    @Override
+    public List<String> getPerformanceProfileNames() {
+        final List<String> names = new ArrayList<>();
+        for (SQLitePerformanceProfile profile : SQLitePerformanceProfile.values()) {
+            names.add(profile.getProfileName());
         }
+        return names;
+    }
+
+    @Override
+    public String getPerformanceProfileName() {
+        return performanceProfile.getProfileName();
     }
 
+    /**
+     * applies the performance profile (see SQLitePerformanceProfile) to the open connection, and to all connections
+     * opened later on
+     *
+     * @param profileName name of the profile, case insensitive
+     * @return false if there is no such profile, or if it could not be applied
+     */
+    @Override
+    public boolean setPerformanceProfile(final String profileName) {
+        final SQLitePerformanceProfile profile = SQLitePerformanceProfile.byProfileName(profileName);
+        if (null == profile) {
+            log.err("No performance profile " + profileName + ", use one of " + getPerformanceProfileNames());
+            return false;
+        }
+
+        // only remembered for later connections once applied successfully
+        if (null != queue && !execute(new SQLiteJob<Object>() {
+            protected Object job(SQLiteConnection connection) throws DatabaseException {
+                try {
+                    applyPerformanceProfile(connection, profile);
+                } catch (SQLiteException e) {
+                    log.err(e.getMessage());
+                    throw new DatabaseException(e.getMessage());
+                }
+                return null;
+            }
+        })) {
+            return false;
+        }
+        performanceProfile = profile;
+        return true;
+    }
 
     /**
      * Change path to the SQLite DB file.
      */
     public void reopenConnection(String newFilePath) {
-        FILE_PATH = newFilePath;
-        openConnection();
+        filePath = newFilePath;
+        // reopening would lose an in-memory database
+        if (!inMemory) {
+            openConnection();
+        }
     }
 
     @Override
@@ -87,25 +317,198 @@ public class SQLiteDatabase extends AbstractSQLDatabase implements IFileBasedDat
         return FILE_NAME;
     }
 
+    @Override
+    public boolean isInMemory() {
+        return inMemory;
+    }
+
+    /**
+     * writes the database to the given file using the SQLite backup API. The file is overwritten if it exists.
+     *
+     * @param fileName file to write the database to
+     * @return true if successful
+     */
+    @Override
+    public boolean snapshot(final String fileName) {
+        final File file = new File(fileName);
+        log.info("Writing snapshot of database to " + file.getAbsolutePath());
+        return execute(new SQLiteJob<Object>() {
+            protected Object job(SQLiteConnection connection) throws DatabaseException {
+                SQLiteBackup backup = null;
+                try {
+                    backup = connection.initializeBackup(file);
+                    while (!backup.isFinished()) {
+                        backup.backupStep(-1);
+                    }
+                } catch (SQLiteException e) {
+                    log.err("Snapshot to " + fileName + " failed: " + e.getMessage());
+                    throw new DatabaseException(e.getMessage());
+                } finally {
+                    if (null != backup) {
+                        backup.dispose();
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
     @Override
     public boolean changeDBFileDirectory(String newPath) {
+        // in memory, only the file to write snapshots to changes, which must not overwrite another database
+        if (inMemory) {
+            if (new File(newPath, FILE_NAME).exists()) {
+                log.warn("Database file path not changed, as " + new File(newPath, FILE_NAME).getAbsolutePath()
+                        + " exists and would be overwritten by the in-memory database");
+                return false;
+            }
+            filePath = newPath;
+            dbFileNotLoaded = false;
+            log.info("New database file path: " + filePath);
+            return true;
+        }
+
         final FileSystem fileSystem = FileSystems.getDefault();
         final Path newFilePath = fileSystem.getPath(newPath + File.separator + FILE_NAME);
+        // file must not be in use while being moved
+        close();
         try {
             if (!Files.exists(newFilePath))
                 Files.move(fileSystem.getPath(getDbFilePath()), newFilePath, StandardCopyOption.REPLACE_EXISTING);
-            FILE_PATH = newPath;
-            log.info("New database file path: " + FILE_PATH);
-            openConnection();
+            filePath = newPath;
+            log.info("New database file path: " + filePath);
         } catch (IOException e) {
             log.warn("Something is wrong with database file path changes!");
             return false;
+        } finally {
+            openConnection();
         }
         return true;
     }
 
     private String getDbFilePath() {
-        return FILE_PATH + File.separator + FILE_NAME;
+        return filePath + File.separator + FILE_NAME;
+    }
+
+    private void applyPerformanceProfile(final SQLiteConnection connection, final SQLitePerformanceProfile profile) throws SQLiteException {
+        for (String pragma : profile.getPragmas()) {
+            log.log("On " + getDbFilePath() + ": " + pragma);
+            connection.exec(pragma);
+        }
+    }
+
+    /**
+     * binds the value natively if it is a number or null, as text otherwise
+     */
+    private static void bind(final SQLiteStatement s, final int index, final Object value) throws SQLiteException {
+        if (null == value) {
+            s.bindNull(index);
+        } else if (value instanceof Long || value instanceof Integer) {
+            s.bind(index, ((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            s.bind(index, ((Number) value).doubleValue());
+        } else {
+            s.bind(index, value.toString());
+        }
+    }
+
+    /**
+     * reads the current row of the statement, null values being read as empty strings
+     */
+    private static Record readRecord(final SQLiteStatement s) throws SQLiteException {
+        final Record record = new Record();
+        for (int col = 0; col < s.columnCount(); col++) {
+            final String value = s.columnString(col);
+            record.put(s.getColumnName(col), value != null ? value : "");
+        }
+        return record;
+    }
+
+    /**
+     * reads the current row of the statement with the values as stored: integers as Long, reals as Double, null as
+     * null, and all others as String
+     */
+    private static Record readTypedRecord(final SQLiteStatement s) throws SQLiteException {
+        final Record record = new Record();
+        for (int col = 0; col < s.columnCount(); col++) {
+            final Object value;
+            switch (s.columnType(col)) {
+                case SQLiteConstants.SQLITE_INTEGER:
+                    value = s.columnLong(col);
+                    break;
+                case SQLiteConstants.SQLITE_FLOAT:
+                    value = s.columnDouble(col);
+                    break;
+                case SQLiteConstants.SQLITE_NULL:
+                    value = null;
+                    break;
+                default:
+                    value = s.columnString(col);
+            }
+            record.put(s.getColumnName(col), value);
+        }
+        return record;
+    }
+
+    /**
+     * @return true if both records have the same attributes in the same order
+     */
+    private static boolean hasSameColumns(final Record record, final Record other) {
+        if (record.countValues() != other.countValues()) {
+            return false;
+        }
+        final Iterator<Value> otherValues = other.iterator();
+        for (Value v : record) {
+            if (!v.getAttributeName().equals(otherValues.next().getAttributeName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * makes sure the connection is closed properly (i.e. pending jobs are finished) when the JVM exits
+     */
+    private synchronized void registerShutdownHook() {
+        if (null != shutdownHook) {
+            return;
+        }
+        shutdownHook = new Thread() {
+            @Override
+            public void run() {
+                close();
+            }
+        };
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    private synchronized void removeShutdownHook() {
+        if (null == shutdownHook) {
+            return;
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // the JVM is exiting already, i.e. the hook itself is closing the database
+        }
+        shutdownHook = null;
+    }
+
+    /**
+     * executes the job on the queue of this database and waits for it to finish
+     *
+     * @return false if the job failed or could not be executed (e.g., because the database was closed)
+     */
+    private boolean execute(final SQLiteJob<?> job) {
+        if (queue == null) {
+            log.err("Database " + getDbFilePath() + " is closed");
+            return false;
+        }
+
+        queue.execute(job).complete();
+
+        //noinspection ThrowableResultOfMethodCallIgnored
+        return job.getError() == null && !job.isCancelled();
     }
 
 //
@@ -122,26 +525,17 @@ public class SQLiteDatabase extends AbstractSQLDatabase implements IFileBasedDat
     public List<Record> prepare(final String sql) {
         log.log("On " + this.getDbFilePath() + ": " + sql);
 
-        SQLiteQueue queue = new SQLiteQueue(new File(getDbFilePath()));
         final List<Record> result = new ArrayList<>();
 
         final SQLiteJob<Object> job = new SQLiteJob<Object>() {
             protected Object job(SQLiteConnection connection) throws DatabaseException {
                 SQLiteStatement s = null;
                 try {
-                    connection.setBusyTimeout(SQLITE_BUSY_TIMEOUT);
-                    // this method is called from database thread and passed the connection
-                    s = connection.prepare(sql);
+                    // this method is called from database thread and passed the connection;
+                    // ad-hoc statements are not cached, the connection lives long
+                    s = connection.prepare(sql, false);
                     while (s.step()) {
-                        Record record = new Record();
-                        for (int col = 0; col < s.columnCount(); col++) {
-                            if (s.columnString(col) != null) {
-                                record.put(s.getColumnName(col), s.columnString(col));
-                            } else {
-                                record.put(s.getColumnName(col), "");
-                            }
-                        }
-                        result.add(record);
+                        result.add(readRecord(s));
                     }
                 } catch (SQLiteException e) {
                     e.printStackTrace();
@@ -156,17 +550,9 @@ public class SQLiteDatabase extends AbstractSQLDatabase implements IFileBasedDat
             }
         };
 
-        queue.start().execute(job);
-
-        try {
-            queue.stop(true).join();
-        } catch (InterruptedException e) {
-            log.err("SQL executed without success: " + sql);
-            return null;
-        }
-
-        //noinspection ThrowableResultOfMethodCallIgnored
-        if (job.getError() != null) {
+        final boolean success = execute(job);
+        invalidateSchemaCache(sql);
+        if (!success) {
             return null;
         }
 
@@ -174,45 +560,74 @@ public class SQLiteDatabase extends AbstractSQLDatabase implements IFileBasedDat
     }
 
     /**
-     * get column names of a table or view in the order as defined in the database
+     * executes an SQL query and returns a cursor over its result. The cursor reads the records in chunks of
+     * CURSOR_FETCH_SIZE, each chunk within one job on the queue
      *
-     * @param tableOrViewName name of table or view
-     * @return list of the column names in the correct order as in database
+     * @param sql query
+     * @return cursor which must be closed by the caller, or null in case of error
      */
     @Override
-    public List<String> getTableOrViewColumnNames(String tableOrViewName) {
-        List<String> columns = new ArrayList<>();
+    public IRecordCursor openCursor(final String sql) {
+        return openCursor(sql, false);
+    }
 
-        final List<Record> result = prepare("PRAGMA table_info(" + tableOrViewName + ");");
-        if (null != result) {
-            for (Record record : result) {
-                columns.add(record.getValue("name").getValue().toString());
+    /**
+     * like openCursor(sql), but the values are read as stored: Long, Double, String, or null
+     *
+     * @param sql query
+     * @return cursor which must be closed by the caller, or null in case of error
+     */
+    @Override
+    public IRecordCursor openTypedCursor(final String sql) {
+        return openCursor(sql, true);
+    }
+
+    private IRecordCursor openCursor(final String sql, final boolean typed) {
+        log.log("On " + this.getDbFilePath() + ": " + sql);
+        invalidateSchemaCache(sql);
+
+        final SQLiteRecordCursor cursor = new SQLiteRecordCursor(typed);
+        if (!execute(new SQLiteJob<Object>() {
+            protected Object job(SQLiteConnection connection) throws DatabaseException {
+                try {
+                    cursor.statement = connection.prepare(sql, false);
+                    for (int col = 0; col < cursor.statement.columnCount(); col++) {
+                        cursor.columnNames.add(cursor.statement.getColumnName(col));
+                    }
+                } catch (SQLiteException e) {
+                    if (null != cursor.statement) {
+                        cursor.statement.dispose();
+                    }
+                    log.err(e.getMessage());
+                    throw new DatabaseException(e.getMessage());
+                }
+                return null;
             }
+        })) {
+            return null;
         }
-        return columns;
+
+        return cursor;
     }
 
     /**
-     * like getTableOrViewColumnNames, but in form of a hash, when the keys are
-     * the columns names and the values are Integer objects denoting the
-     * position of the columns within the result set of the PRAGMA table_info
-     * call, starting with 0.
-     * @return hash table where the keys are the column names as defined in the database, and values are Integer objects from 0..n depending on the position of the column as defined in the database
+     * get column names of a table or view in the order as defined in the database, using PRAGMA table_info
+     *
+     * @param tableOrViewName name of table or view
+     * @return list of the column names in the correct order as in database, null in case of error
      */
     @Override
-    public Hashtable<String, Integer> getTableOrViewColumnNamesHash(String tableOrViewName) {
-        Hashtable<String, Integer> columns = new Hashtable<>();
-
-        List<Record> result = prepare("PRAGMA table_info(" + tableOrViewName + ");");
-        int i = 0;
-        if (result != null) {
-            for (Record record : result) {
-                columns.put(record.getValue("name").getValue().toString(), i);
-                i++;
-            }
-            return columns;
+    protected List<String> readTableOrViewColumnNames(String tableOrViewName) {
+        final List<Record> result = prepare("PRAGMA table_info(" + tableOrViewName + ");");
+        if (null == result) {
+            return null;
+        }
+
+        final List<String> columns = new ArrayList<>();
+        for (Record record : result) {
+            columns.add(record.getValue("name").getValue().toString());
         }
-        return null;
+        return columns;
     }
 
     /**
@@ -222,7 +637,7 @@ public class SQLiteDatabase extends AbstractSQLDatabase implements IFileBasedDat
      * case of exception)
      */
     @Override
-    public boolean existsTable(final String tableName) {
+    protected boolean readExistsTable(final String tableName) {
         List<Record> result = prepare("SELECT * FROM sqlite_master WHERE type='table' AND name='" + tableName.toLowerCase() + "'");
         return result != null && result.size() > 0;
     }
@@ -234,58 +649,172 @@ public class SQLiteDatabase extends AbstractSQLDatabase implements IFileBasedDat
      * case of exception)
      */
     @Override
-    public boolean existsView(final String viewName) {
+    protected boolean readExistsView(final String viewName) {
         List<Record> result = prepare("SELECT * FROM sqlite_master WHERE type='view' AND name='" + viewName.toLowerCase() + "'");
         return result != null && result.size() > 0;
     }
 
     /**
-     * inserts records into table
+     * inserts records into table. Outside of a transaction started by beginTransaction(), the records are
+     * inserted in a transaction of their own. Within such a transaction, they are inserted under a savepoint, such
+     * that a failing insert only rolls back its own records and the transaction goes on
      * @param tableName table into which records are inserted
      * @param records   records to be inserted
+     * @return false if the records could not be inserted
      */
     @Override
-    public void insert(final String tableName, final List<Record> records) {
+    public boolean insert(final String tableName, final List<Record> records) {
         if (records.size() == 0) {
-            return;
+            return true;
         }
 
-        final SQLiteQueue queue = new SQLiteQueue(new File(getDbFilePath()));
-        queue.start().execute(new SQLiteJob<Object>() {
-            protected Object job(SQLiteConnection connection) throws DatabaseException {
+        return executeInsert(tableName, records.size(), new InsertStep() {
+            public void insert(final SQLiteConnection connection) throws SQLiteException {
+                // the statement is only built again if a record has other columns than the one before
+                Record statementRecord = null;
                 SQLiteStatement s = null;
+                for (Record record : records) {
+                    // leads to too many logging entries when importing large files
+                    // at later point:
+                    // @TODO: something like temporary suppressing certain log entries
+                    // currently commented out
+                    // log.log("INSERT: " + record.toString());
+
+                    if (null == statementRecord || !hasSameColumns(record, statementRecord)) {
+                        s = statementCache.get(connection, createInsertStatement(tableName, record, true));
+                        statementRecord = record;
+                    } else {
+                        s.reset(true);
+                    }
+                    int index = 1;
+                    for (Value v : record) {
+                        bind(s, index++, v.getValue());
+                    }
+                    s.step();
+                }
+            }
+        });
+    }
+
+    /**
+     * inserts rows into table, like insert(tableName, records), but with one statement compiled for all rows
+     * @param tableName   table into which the rows are inserted
+     * @param columnNames names of the columns, as in the table
+     * @param rows        values of each row, in the order of the columns
+     * @return false if the rows could not be inserted
+     */
+    @Override
+    public boolean insert(final String tableName, final List<String> columnNames, final List<Object[]> rows) {
+        if (rows.size() == 0) {
+            return true;
+        }
+
+        final StringBuilder sql = new StringBuilder("INSERT INTO ");
+        sql.append(tableName);
+        sql.append("(");
+        sql.append(TextUtils.serializeListWithDelimitator(columnNames, ", "));
+        sql.append(") VALUES (");
+        for (int i = 0; i < columnNames.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(");");
+
+        return executeInsert(tableName, rows.size(), new InsertStep() {
+            public void insert(final SQLiteConnection connection) throws SQLiteException {
+                final SQLiteStatement s = statementCache.get(connection, sql.toString());
+                for (Object[] row : rows) {
+                    s.reset(true);
+                    for (int i = 0; i < row.length; i++) {
+                        bind(s, i + 1, row[i]);
+                    }
+                    s.step();
+                }
+            }
+        });
+    }
+
+    /**
+     * runs the insert in a transaction of its own, or under a savepoint if a transaction started by
+     * beginTransaction() is running
+     * @param tableName table into which is inserted, for the error message
+     * @param count     number of records inserted, for the error message
+     * @return false if the insert failed and was rolled back
+     */
+    private boolean executeInsert(final String tableName, final int count, final InsertStep step) {
+        final SQLiteJob<Boolean> job = new SQLiteJob<Boolean>() {
+            protected Boolean job(SQLiteConnection connection) throws SQLiteException, DatabaseException {
+                final boolean ownTransaction = connection.getAutoCommit();
                 try {
-                    connection.setBusyTimeout(SQLITE_BUSY_TIMEOUT);
                     // this method is called from database thread and passed the connection
-                    connection.exec("BEGIN");
-                    for (Record record : records) {
-                        // leads to too many logging entries when importing large files
-                        // at later point:
-                        // @TODO: something like temporary suppressing certain log entries
-                        // currently commented out
-                        // log.log("INSERT: " + record.toString());
-                        s = connection.prepare(createInsertStatement(tableName, record));
-                        s.step();
+                    connection.exec(ownTransaction ? "BEGIN" : "SAVEPOINT " + INSERT_SAVEPOINT);
+                    step.insert(connection);
+                    connection.exec(ownTransaction ? "COMMIT" : "RELEASE " + INSERT_SAVEPOINT);
+                } catch (SQLiteException e) {
+                    log.err("Could not insert " + count + " records into " + tableName + ": " + e.getMessage());
+                    if (ownTransaction) {
+                        // the queue rolls back
+                        throw new DatabaseException(e.getMessage());
+                    }
+                    // throwing would make the queue roll back the surrounding transaction as well
+                    try {
+                        connection.exec("ROLLBACK TO " + INSERT_SAVEPOINT);
+                        connection.exec("RELEASE " + INSERT_SAVEPOINT);
+                    } catch (SQLiteException rollbackException) {
+                        log.err("Could not roll back the records inserted into " + tableName + ": " + rollbackException.getMessage());
                     }
+                    return false;
+                }
+                return true;
+            }
+        };
+        return execute(job) && Boolean.TRUE.equals(job.complete());
+    }
 
+    /**
+     * starts a transaction spanning the following inserts, unless one is running already
+     */
+    @Override
+    public void beginTransaction() {
+        execute(new SQLiteJob<Object>() {
+            protected Object job(SQLiteConnection connection) throws SQLiteException {
+                if (connection.getAutoCommit()) {
+                    connection.exec("BEGIN");
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * commits the transaction started by beginTransaction(), if it is still running
+     */
+    @Override
+    public void commitTransaction() {
+        execute(new SQLiteJob<Object>() {
+            protected Object job(SQLiteConnection connection) throws SQLiteException {
+                if (!connection.getAutoCommit()) {
                     connection.exec("COMMIT");
-                } catch (SQLiteException e) {
-                    e.printStackTrace();
-                    throw new DatabaseException(e.getMessage());
-                } finally {
-                    if (null != s) {
-                        s.dispose();
-                    }
                 }
                 return null;
             }
-        }).complete();
-        try {
-            queue.stop(true).join();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-            log.err(e.getMessage());
-        }
+        });
+    }
+
+    /**
+     * rolls back the transaction started by beginTransaction(), if it is still running. As tables may have been
+     * created, dropped or altered within the transaction, the schema cache is invalidated
+     */
+    @Override
+    public void rollbackTransaction() {
+        execute(new SQLiteJob<Object>() {
+            protected Object job(SQLiteConnection connection) throws SQLiteException {
+                if (!connection.getAutoCommit()) {
+                    connection.exec("ROLLBACK");
+                }
+                return null;
+            }
+        });
+        invalidateSchemaCache();
     }
 
     /**
@@ -313,4 +842,125 @@ public class SQLiteDatabase extends AbstractSQLDatabase implements IFileBasedDat
         }
         return names;
     }
+
+    /**
+     * the statements of an insert, run on the database thread within executeInsert()
+     */
+    private interface InsertStep {
+        void insert(SQLiteConnection connection) throws SQLiteException;
+    }
+
+    /**
+     * cursor over one statement of the connection of the queue. The statement is only accessed within jobs,
+     * records are buffered chunk-wise in between
+     */
+    private class SQLiteRecordCursor implements IRecordCursor {
+
+        private SQLiteStatement statement;
+
+        /**
+         * if true, the values are read as stored, see readTypedRecord()
+         */
+        private final boolean typed;
+
+        private final List<String> columnNames = new ArrayList<>();
+
+        private final ArrayDeque<Record> buffer = new ArrayDeque<>();
+
+        private boolean exhausted;
+
+        private boolean failed;
+
+        private SQLiteRecordCursor(final boolean typed) {
+            this.typed = typed;
+        }
+
+        @Override
+        public List<String> getColumnNames() {
+            return columnNames;
+        }
+
+        @Override
+        public boolean isFailed() {
+            return failed;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (buffer.isEmpty() && !exhausted) {
+                fetch();
+            }
+            return !buffer.isEmpty();
+        }
+
+        @Override
+        public Record next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return buffer.poll();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            exhausted = true;
+            buffer.clear();
+            if (null == statement || null == queue) {
+                // statements are disposed with the connection, if the database has been closed before
+                statement = null;
+                return;
+            }
+
+            execute(new SQLiteJob<Object>() {
+                protected Object job(SQLiteConnection connection) {
+                    disposeStatement();
+                    return null;
+                }
+            });
+        }
+
+        /**
+         * reads the next chunk of records into the buffer. The statement is released as soon as
+         * all records have been read
+         */
+        private void fetch() {
+            final boolean success = execute(new SQLiteJob<Object>() {
+                protected Object job(SQLiteConnection connection) throws DatabaseException {
+                    try {
+                        for (int i = 0; i < CURSOR_FETCH_SIZE; i++) {
+                            if (!statement.step()) {
+                                exhausted = true;
+                                disposeStatement();
+                                break;
+                            }
+                            buffer.add(typed ? readTypedRecord(statement) : readRecord(statement));
+                        }
+                    } catch (SQLiteException e) {
+                        exhausted = true;
+                        disposeStatement();
+                        log.err(e.getMessage());
+                        throw new DatabaseException(e.getMessage());
+                    }
+                    return null;
+                }
+            });
+
+            if (!success) {
+                failed = true;
+                exhausted = true;
+            }
+        }
+
+        private void disposeStatement() {
+            if (null != statement) {
+                statement.dispose();
+                statement = null;
+            }
+        }
+    }
 }
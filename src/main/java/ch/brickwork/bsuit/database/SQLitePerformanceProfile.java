@@ -0,0 +1,77 @@
+package ch.brickwork.bsuit.database;
+
+/**
+ * Sets of pragmas applied to the SQLite connection, trading durability for speed. DEFAULT corresponds to the
+ * SQLite defaults (rollback journal, every commit synced to disk) and is used unless another profile is chosen.
+ */
+public enum SQLitePerformanceProfile {
+
+    /**
+     * SQLite defaults: safe against power loss and crashes
+     */
+    DEFAULT("default",
+            "PRAGMA journal_mode=DELETE",
+            "PRAGMA synchronous=FULL",
+            "PRAGMA cache_size=-2000",
+            "PRAGMA temp_store=DEFAULT",
+            "PRAGMA mmap_size=0"),
+
+    /**
+     * write-ahead log, synced at checkpoints only: safe against crashes of BoilerSuit, but the last
+     * commits may be lost on power loss
+     */
+    BALANCED("balanced",
+            "PRAGMA journal_mode=WAL",
+            "PRAGMA synchronous=NORMAL",
+            "PRAGMA cache_size=-65536",
+            "PRAGMA temp_store=MEMORY",
+            "PRAGMA mmap_size=268435456"),
+
+    /**
+     * for loading and transforming large amounts of data which can be reproduced: nothing is synced, the database
+     * may be corrupt after a crash. The page size only applies to databases which are still empty
+     */
+    BULK_LOAD("bulk-load",
+            "PRAGMA page_size=8192",
+            "PRAGMA journal_mode=WAL",
+            "PRAGMA synchronous=OFF",
+            "PRAGMA cache_size=-262144",
+            "PRAGMA temp_store=MEMORY",
+            "PRAGMA mmap_size=1073741824");
+
+    private final String profileName;
+
+    private final String[] pragmas;
+
+    SQLitePerformanceProfile(String profileName, String... pragmas) {
+        this.profileName = profileName;
+        this.pragmas = pragmas;
+    }
+
+    /**
+     * @return name as used in scripts
+     */
+    public String getProfileName() {
+        return profileName;
+    }
+
+    /**
+     * @return pragma statements to be executed on the connection, in this order
+     */
+    public String[] getPragmas() {
+        return pragmas;
+    }
+
+    /**
+     * @param profileName name as used in scripts, case insensitive
+     * @return profile, or null if there is no profile with this name
+     */
+    public static SQLitePerformanceProfile byProfileName(final String profileName) {
+        for (SQLitePerformanceProfile profile : values()) {
+            if (profile.profileName.equalsIgnoreCase(profileName.trim())) {
+                return profile;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,62 @@
+package ch.brickwork.bsuit.database;
+
+import com.almworks.sqlite4java.SQLiteConnection;
+import com.almworks.sqlite4java.SQLiteException;
+import com.almworks.sqlite4java.SQLiteStatement;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of compiled statements of one connection, such that parameterised statements
+ * (e.g., the INSERT of a bulk insert) are parsed once and then only rebound.
+ * Must only be used from the thread owning the connection. The least recently used statement is disposed
+ * when the capacity is exceeded.
+ */
+class SQLiteStatementCache {
+
+    private final LinkedHashMap<String, SQLiteStatement> statements;
+
+    /**
+     * @param capacity maximum number of compiled statements held at the same time
+     */
+    SQLiteStatementCache(final int capacity) {
+        statements = new LinkedHashMap<String, SQLiteStatement>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SQLiteStatement> eldest) {
+                if (size() > capacity) {
+                    eldest.getValue().dispose();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param connection connection the statement is compiled on, if it is not in the cache yet
+     * @param sql        SQL with ? place holders
+     * @return compiled statement, reset and with cleared bindings
+     * @throws SQLiteException if the statement cannot be compiled
+     */
+    SQLiteStatement get(final SQLiteConnection connection, final String sql) throws SQLiteException {
+        SQLiteStatement statement = statements.get(sql);
+        if (null == statement || statement.isDisposed()) {
+            statement = connection.prepare(sql, false);
+            statements.put(sql, statement);
+        } else {
+            statement.reset(true);
+        }
+        return statement;
+    }
+
+    /**
+     * disposes all cached statements
+     */
+    void clear() {
+        for (SQLiteStatement statement : statements.values()) {
+            statement.dispose();
+        }
+        statements.clear();
+    }
+}
@@ -10,6 +10,12 @@ import ch.brickwork.bsuit.util.Log;
  * Created by marcel on 12/22/15.
  */
 public class DefaultBoilersuitApplicationContext implements IBoilersuitApplicationContext {
+    /**
+     * system property; if "true", the database is kept in memory and only written to data.db when closed
+     * or by SNAPSHOT
+     */
+    public static final String IN_MEMORY_PROPERTY = "boilersuit.inmemory";
+
     public   String defaultWorkingDirectory;
 
     private  IDatabase database;
@@ -18,9 +24,16 @@ public class DefaultBoilersuitApplicationContext implements IBoilersuitApplicati
     public static String workingDirectory;
 
     public DefaultBoilersuitApplicationContext() {
+        this(Boolean.getBoolean(IN_MEMORY_PROPERTY));
+    }
+
+    /**
+     * @param inMemory if true, the database is kept in memory and only written to data.db when closed or by SNAPSHOT
+     */
+    public DefaultBoilersuitApplicationContext(boolean inMemory) {
         setLog(new Log());
         workingDirectory = defaultWorkingDirectory = ".";
-        setDatabase(new SQLiteDatabase(workingDirectory, log));
+        setDatabase(new SQLiteDatabase(workingDirectory, log, inMemory));
     }
 
     @Override
@@ -47,6 +60,10 @@ public class DefaultBoilersuitApplicationContext implements IBoilersuitApplicati
 
     @Override
     public void setDatabase(IDatabase database) {
+        // the replaced database would otherwise keep its connection open
+        if (null != this.database && this.database != database) {
+            this.database.close();
+        }
         this.database = database;
     }
 
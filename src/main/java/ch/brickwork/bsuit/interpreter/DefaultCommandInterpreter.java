@@ -78,6 +78,8 @@ public class DefaultCommandInterpreter extends AbstractInterpreter implements IC
         interpreters.add(new MapInterpreter(getTargetVariable(), command, context));
         interpreters.add(new TableModificationInterpreter(getTargetVariable(), command, context));
         interpreters.add(new ChangeDirectoryInterpreter(getTargetVariable(), command, context));
+        interpreters.add(new PerformanceProfileInterpreter(getTargetVariable(), command, context));
+        interpreters.add(new SnapshotInterpreter(getTargetVariable(), command, context));
     }
 
     /**
@@ -35,6 +35,14 @@ import java.util.List;
  * <p>
  * <pre>WITH delim([delim])</pre> can be used to pre-define the delimitor. If not indicated, the delim is automatically recognized based on frequency analysis
  * </p>
+ * <p>
+ * <pre>WITH types(infer)</pre> infers the column types (INTEGER, REAL, DATE for yyyy-mm-dd, otherwise TEXT) from the first records of the file
+ * and stores the values with these types, which makes numeric comparisons, aggregations and sorting work on numbers. If not indicated, all columns are text
+ * </p>
+ * <p>
+ * <pre>WITH threads([n])</pre> parses the file with n threads, while it is read by another thread and written to the database by a third one.
+ * threads(1) reads, parses and writes on one thread. If not indicated, files larger than 16 MB are parsed by several threads if there are several processors
+ * </p>
  * <h2>Examples</h2>
  * <pre>
  * new_table_name := select * from existing_table_name;     -- sql
@@ -43,6 +51,9 @@ import java.util.List;
  * := file*.csv;                                            -- import list of files
  * :=                                                       -- import all files in directory (eq to := *)
  * := file.csv WITH delim(',')                              -- import file.csv assuming the delimitor is ,
+ * := file.csv WITH types(infer)                            -- import file.csv with typed columns
+ * := file.csv WITH threads(4)                              -- import file.csv using 4 parser threads
+ * := file.bsc                                             -- import file exported as file.bsc, with its column types
  * </pre>
  */
 public class DefinitionInterpreter extends AbstractInterpreter {
@@ -52,12 +63,24 @@ public class DefinitionInterpreter extends AbstractInterpreter {
     private static final java.lang.String TXT_IMPORT_FAILURE = "Import failure! File was empty or invalid.";
     private static final java.lang.String TXT_SYNTAX_ERROR = "Syntax error. Usage: new_table_name := filename | wildcards | table-expression | native-sql-expression | [*]";
 
+    /**
+     * extension of files in BoilerSuit's columnar format, imported without parsing
+     */
+    private static final String COLUMNAR_FILE_EXT = "bsc";
+
     private final IDatabase database = context.getDatabase();
 
     private String encoding;
 
     private String delim;
 
+    private boolean inferTypes;
+
+    /**
+     * number of threads parsing the file, 0 to choose automatically
+     */
+    private int parserThreads;
+
     public DefinitionInterpreter(final String command, final IBoilersuitApplicationContext context)
     {
         super(null, command, context);
@@ -159,6 +182,18 @@ public class DefinitionInterpreter extends AbstractInterpreter {
 
                 if(wcp.getArgumentsIgnoreCase("delim") != null)
                     delim = wcp.getArgumentsIgnoreCase("delim").get(0);
+
+                List<String> types = wcp.getArgumentsIgnoreCase("types");
+                inferTypes = types != null && types.get(0).trim().equalsIgnoreCase("infer");
+
+                List<String> threads = wcp.getArgumentsIgnoreCase("threads");
+                if (threads != null) {
+                    try {
+                        parserThreads = Math.max(1, Integer.parseInt(threads.get(0).trim()));
+                    } catch (NumberFormatException e) {
+                        context.getLog().warn("Ignoring threads(" + threads.get(0) + "), not a number");
+                    }
+                }
             }
 
             // cut off parameters for further processing
@@ -210,7 +245,11 @@ public class DefinitionInterpreter extends AbstractInterpreter {
         String resultVariableName = null;
         if (file.isFile()) {
             FileLoader fl = new FileLoader(database, context);
-            resultVariableName = fl.loadFile(varName, "", file, encoding, delim);
+            if (extension.equalsIgnoreCase(COLUMNAR_FILE_EXT)) {
+                resultVariableName = fl.loadColumnarFile(varName, "", file);
+            } else {
+                resultVariableName = fl.loadFile(varName, "", file, encoding, delim, inferTypes, parserThreads);
+            }
         }
         return resultVariableName;
     }
@@ -1,40 +1,65 @@
 package ch.brickwork.bsuit.interpreter.interpreters;
 
+import ch.brickwork.bsuit.database.ColumnType;
+import ch.brickwork.bsuit.database.ColumnarFileWriter;
 import ch.brickwork.bsuit.database.IDatabase;
+import ch.brickwork.bsuit.database.IRecordCursor;
+import ch.brickwork.bsuit.database.KeysetPartitioning;
 import ch.brickwork.bsuit.database.Record;
 import ch.brickwork.bsuit.database.Value;
 import ch.brickwork.bsuit.database.Variable;
 import ch.brickwork.bsuit.globals.IBoilersuitApplicationContext;
 import ch.brickwork.bsuit.interpreter.util.WithClauseParser;
 import ch.brickwork.bsuit.util.FileIOUtils;
-import ch.brickwork.bsuit.util.Partition;
-import ch.brickwork.bsuit.util.Partitioning;
-import org.apache.commons.lang3.StringEscapeUtils;
+import ch.brickwork.bsuit.util.IProgressCallback;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 /**
  * <p>
  * Exports tables into various supported file types, currently csv, xls, xlsx
  * <p/>
  * <h2>Syntax</h2>
- * variablename =: [filename [delim(delimcharacter)][quote(quotecharacter)][replacedelim(replacestring)][replacequote(replacestring)]]<br/>
+ * variablename =: [filename [delim(delimcharacter)][quote(quotecharacter)][replacedelim(replacestring)][replacequote(replacestring)][buffer(bytes)][sheetrows(rows)][compact()][compress()][parallel([threads])]]<br/>
  * Extensions will be interpreted as follows:
  * <ul>
  *     <li>csv - exports as csv with default options</li>
+ *     <li>csv.gz - exports as gzip compressed csv</li>
  *     <li>xls - exports as Microsoft (R) Excel 1997-2003</li>
- *     <li>xlsx - exports as Microsoft (R) Excel</li>
+ *     <li>xlsx - exports as Microsoft (R) Excel, streaming the rows to temporary files</li>
+ *     <li>xml - exports as XML document, one element per record</li>
+ *     <li>bsc - exports in BoilerSuit's binary columnar format, with the column types, to be imported again by := file.bsc</li>
  * </ul>
+ * Rows not fitting into one sheet (65,536 rows in xls, 1,048,576 in xlsx, header included) are continued on further
+ * sheets.
  * <h2>Samples</h2>
  * <pre>-- as simply as it can get - exports ALL variables
  * </pre>
@@ -51,6 +76,16 @@ import java.util.List;
  * </pre>
  * <pre>existing_table_name =: file_name.csv with delim(";"), quote("\'"), replacedelim(","), replacequote("_");
  * </pre>
+ * <pre>existing_table_name =: file_name.csv.gz with buffer(1048576);
+ * </pre>
+ * <pre>existing_table_name =: file_name.xml with compact();
+ * </pre>
+ * <pre>existing_table_name =: file_name.bsc with compress();
+ * </pre>
+ * <pre>-- exports all variables, four at the same time
+ * </pre>
+ * <pre>=: with parallel(4);
+ * </pre>
  * <h3>On the use of delim, quote, etc. (Simple)</h3>
  * <p>To export using ';' as a delimitator (instead of the default ','), you would use</p>
  * <pre>existing_table_name =: file_name.csv with delim(";")
@@ -69,6 +104,12 @@ import java.util.List;
  * <li>Argument of function quote() will be used as a quote to wrap the strings in csv file.</li>
  * <li>Argument of function replacedelim() will be used for replace all of occurrences of delimitator in exported strings.</li>
  * <li>Argument of function replacequote() will be used for replace all of occurrences of quote in exported strings.</li>
+ * <li>Argument of function buffer() is the size in bytes of the buffer csv, xml and bsc files are written through (default 64 KB).</li>
+ * <li>Function compact() writes xml files without indentation and line breaks.</li>
+ * <li>Function compress() compresses bsc files.</li>
+ * <li>Function parallel() exports several variables at the same time, each to its own file, on as many threads as given
+ * (default: number of processors).</li>
+ * <li>Argument of function sheetrows() is the number of rows per sheet in xls and xlsx files, header included (default: as many as the format allows).</li>
  * </ul>
  * <p/>
  */
@@ -79,10 +120,12 @@ public class ExportInterpreter extends AbstractInterpreter {
     private static final String TXT_EXPORTED = "Exported variables to files";
     private static final String TXT_CANT_FIND_VARIABLE = "Couldn't find variable ";
     private static final String TXT_EXPORTED_XLS = "Exported as *.xls (Excel 97-2003). If you wish to export as xlsx, you can use *.xlsx instead.";
-    private static final String TXT_EXPORT_NOT_SUPPORTED = "Currently supported files are *.csv, *.xml, *xls and *.xlsx";
+    private static final String TXT_EXPORT_NOT_SUPPORTED = "Currently supported files are *.csv, *.csv.gz, *.xml, *xls, *.xlsx and *.bsc";
 
     private static final String DB_WILDCARD = "%";
 
+    private static final String EXPORT_THREAD_NAME = "boilersuit-export";
+
     /**
      * default delimitator sequence
      */
@@ -90,6 +133,8 @@ public class ExportInterpreter extends AbstractInterpreter {
 
     private static final String EXPORTED_FILE_EXT = ".csv";
 
+    private static final String GZIP_FILE_EXT = ".gz";
+
 
     /**
      * default quote sequence
@@ -112,17 +157,27 @@ public class ExportInterpreter extends AbstractInterpreter {
      */
     private static final int SAME_LINE_XML_LIMIT = 60;
 
-    /**
-     * in case of XML output, the first line to be written in XML file
-     */
-    private static final String XML_DEF_LINE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
-
     /**
      * number of lines that are written on =: file output at once. To avoid memory problems, files are written in
      * partitions of size FILE_WRITE_PARTITION_SIZE (+smaller residual partition at the end)
      */
     private static final int FILE_WRITE_PARTITION_SIZE = 1000;
 
+    /**
+     * default size in bytes of the buffer csv, xml and bsc files are written through
+     */
+    private static final int DEFAULT_WRITE_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * number of rows of an xlsx file kept in memory, older rows are written to temporary files
+     */
+    private static final int XLSX_ROW_WINDOW = 1000;
+
+    /**
+     * the XML element containing the records
+     */
+    private static final String XML_DOCUMENT_ELEMENT = "DocumentElement";
+
 
     private final IDatabase database = context.getDatabase();
 
@@ -147,16 +202,49 @@ public class ExportInterpreter extends AbstractInterpreter {
      * same as replaceDelimitator, but for quote
      */
     private String replaceQuote = REPLACE_QUOTE_DEFAULT;
+
+    /**
+     * size in bytes of the buffer csv, xml and bsc files are written through
+     */
+    private int writeBufferSize = DEFAULT_WRITE_BUFFER_SIZE;
+
+    /**
+     * rows per sheet of xls and xlsx files (header included), or -1 for as many as the format allows
+     */
+    private int rowsPerSheet = -1;
+
+    /**
+     * if true, xml files are written without indentation and line breaks
+     */
+    private boolean compactXml = false;
+
+    /**
+     * if true, bsc files are compressed
+     */
+    private boolean compressColumnar = false;
+
+    /**
+     * informed of the number of records written after each partition, logs it by default
+     */
+    private IProgressCallback progressCallback = new IProgressCallback() {
+        @Override
+        public void progress(final long count)
+        {
+            context.getLog().info("Exported " + count + " records...");
+        }
+    };
     
-    private int delimitatorReplacementCount = 0;
-    
-    private int quoteReplacementCount = 0;
+    /**
+     * number of variables exported at the same time
+     */
+    private int parallelism = 1;
 
     private enum SupportedFileExt {
         XLSX,
         XLS,
         XML,
-        CSV
+        CSV,
+        BSC
     }
 
     /**
@@ -174,6 +262,16 @@ public class ExportInterpreter extends AbstractInterpreter {
     @Override
     public boolean needsTargetVariable() { return false; }
 
+    /**
+     * @param progressCallback informed of the number of records written so far, after each partition written (replaces
+     *                         logging it). Called from several threads at the same time if variables are exported in
+     *                         parallel
+     */
+    public void setProgressCallback(final IProgressCallback progressCallback)
+    {
+        this.progressCallback = progressCallback;
+    }
+
 
     /**
      * Process the command, try to find WITH clause if exists and extract functions like quote() or delim().
@@ -186,13 +284,13 @@ public class ExportInterpreter extends AbstractInterpreter {
     public ProcessingResult process()
     {
         // interpret options, if any
-        // SYNTAX: myvariable =: myfile.ext WITH delim('), quote(), replaceDelim(//), replaceQuote(*);
+        // SYNTAX: myvariable =: myfile.ext WITH delim('), quote(), replaceDelim(//), replaceQuote(*), buffer(65536), sheetRows(100000), compact(), compress(), parallel(4);
         int indexOfWITH = command.toLowerCase().indexOf(" with ");
         int secondIndexOfWITH = command.toLowerCase().indexOf(" with ", indexOfWITH + 1);
         if (indexOfWITH != -1) {
             if (!parseWithParameters(indexOfWITH, secondIndexOfWITH)) {
                 return new ProcessingResult(ProcessingResult.ResultType.SYNTAX_ERROR,
-                    "SYNTAX: myvariable =: myfile.ext WITH delim('), quote(), replaceDelim(//), replaceQuote(*) (replaceXX: optional)");
+                    "SYNTAX: myvariable =: myfile.ext WITH delim('), quote(), replaceDelim(//), replaceQuote(*), buffer(65536), sheetRows(100000), compact(), compress(), parallel(4) (replaceXX: optional)");
             }
             // cut off parameters for further processing
             command = command.substring(0, Math.max(indexOfWITH, secondIndexOfWITH));
@@ -222,9 +320,8 @@ public class ExportInterpreter extends AbstractInterpreter {
             return new ProcessingResult(ProcessingResult.ResultType.SYNTAX_ERROR, TXT_MORE_THAN_ONE);
         }
 
-        final ProcessingResult pr = new ProcessingResult(ProcessingResult.ResultType.COMPOSITE, TXT_EXPORTED);
-
-        //Prepare sub results for each exporting table
+        // file names (and access to them) are checked before anything is exported
+        final List<String> fileNames = new ArrayList<>();
         for (final Variable v : variables) {
             if (variablesLength != 1 || fileName.isEmpty()) {
                 fileName = v.getVariableName();
@@ -237,9 +334,31 @@ public class ExportInterpreter extends AbstractInterpreter {
                 final String exceptionMessage = "You have no write and read access to file or directory: '" + context.getWorkingDirectory() + File.separator + fileName + "' or path doesn't exists!";
                 return new ProcessingResult(ProcessingResult.ResultType.FATAL_ERROR, exceptionMessage, command);
             }
+            fileNames.add(fileName);
+        }
+
+        final List<ReplacementCounts> replacementCounts = new ArrayList<>();
+        final List<ProcessingResult> results;
+        if (parallelism > 1 && variablesLength > 1) {
+            results = exportVariablesInParallel(variables, fileNames, replacementCounts);
+        } else {
+            results = new ArrayList<>();
+            for (int i = 0; i < variablesLength; i++) {
+                final ReplacementCounts counts = new ReplacementCounts();
+                replacementCounts.add(counts);
+                results.add(exportVariable(variables.get(i).getVariableName(), fileNames.get(i), counts));
+            }
+        }
+
+        //Prepare sub results for each exporting table, in the order of the variables
+        final ProcessingResult pr = new ProcessingResult(ProcessingResult.ResultType.COMPOSITE, TXT_EXPORTED);
+        int delimitatorReplacementCount = 0;
+        int quoteReplacementCount = 0;
+        for (int i = 0; i < variablesLength; i++) {
+            pr.addSubResult(results.get(i));
+            delimitatorReplacementCount += replacementCounts.get(i).delimitator;
+            quoteReplacementCount += replacementCounts.get(i).quote;
 
-            pr.addSubResult(exportVariable(v.getVariableName(), fileName));
-            
             if(delimitatorReplacementCount > 0) 
                 context.getLog().warn("Delimitator character " + delimitator + " is used within values and was replaced by " + REPLACE_DELIMITATOR_DEFAULT + " " + delimitatorReplacementCount + " times. Use replacedelim(...) parameter to improve.");
             
@@ -250,6 +369,61 @@ public class ExportInterpreter extends AbstractInterpreter {
         return pr;
     }
 
+    /**
+     * Exports the variables on a pool of parallelism threads, each variable to its own file by one thread, such that
+     * the records of each file are written in order.
+     *
+     * @param variables         variables to export
+     * @param fileNames         file name of each variable
+     * @param replacementCounts filled with the replacement counts of each variable
+     *
+     * @return processing results of the variables, in their order
+     */
+    private List<ProcessingResult> exportVariablesInParallel(final List<Variable> variables, final List<String> fileNames,
+                                                             final List<ReplacementCounts> replacementCounts)
+    {
+        final ExecutorService exporters = Executors.newFixedThreadPool(Math.min(parallelism, variables.size()), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, EXPORT_THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            final List<Future<ProcessingResult>> futures = new ArrayList<>();
+            for (int i = 0; i < variables.size(); i++) {
+                final String variableName = variables.get(i).getVariableName();
+                final String fileName = fileNames.get(i);
+                final ReplacementCounts counts = new ReplacementCounts();
+                replacementCounts.add(counts);
+                futures.add(exporters.submit(new Callable<ProcessingResult>() {
+                    @Override
+                    public ProcessingResult call()
+                    {
+                        return exportVariable(variableName, fileName, counts);
+                    }
+                }));
+            }
+
+            final List<ProcessingResult> results = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    context.getLog().err("Could not export " + variables.get(i).getVariableName() + ": " + e.getCause());
+                    results.add(new ProcessingResult(ProcessingResult.ResultType.FATAL_ERROR, "Could not export " + variables.get(i).getVariableName()));
+                }
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while exporting", e);
+        } finally {
+            exporters.shutdownNow();
+        }
+    }
+
     @Override
     public boolean understands()
     {
@@ -257,114 +431,126 @@ public class ExportInterpreter extends AbstractInterpreter {
     }
 
     /**
-     * Uses existing table, converts it to CSV format and saves in file.
+     * Uses existing table, converts it to CSV format and saves in file. The records are written as they are read,
+     * through a buffer of writeBufferSize bytes, so the file is never held in memory.
      *
      * @param tableOrViewName table name which will be exported
      * @param fileName        file name which will be created
      * @param partitions      part of data from database
+     * @param gzip            true to compress the file with gzip
+     * @param counts          counts the values in which the delimitator or quote was replaced
      */
-    private void exportToCsv(final String tableOrViewName, final String fileName, final Partitioning partitions)
+    private void exportToCsv(final String tableOrViewName, final String fileName, final KeysetPartitioning partitions, final boolean gzip,
+                             final ReplacementCounts counts)
     {
-        try {
-            // open or create file and writer
-
-            final FileWriter fw = new FileWriter(context.getWorkingDirectory() + File.separator + fileName);
-            final StringBuilder fileContent = new StringBuilder();
-
-            // write
+        try (Writer writer = openWriter(fileName, gzip)) {
             boolean firstLine = true;
 
-            for (final Partition partition : partitions) {
+            for (final List<Record> recordsInPartition : partitions) {
                 context.getLog().info("Reading result for partition...");
-                final List<Record> recordsInPartition = database.getAllRecordsFromTableOrView(tableOrViewName, partition.getFirstRecord(),
-                    partition.getLength(), null, null);
                 if (null != recordsInPartition) {
                     for (final Record record : recordsInPartition) {
                         // first, write header line
                         if (firstLine) {
                             boolean firstAttribute = true;
-                            StringBuilder header = new StringBuilder();
                             for (Value v : record) {
                                 if (firstAttribute) {
                                     firstAttribute = false;
                                 } else {
-                                    header.append(delimitator);
+                                    writer.write(delimitator);
                                 }
 
-                                header.append(quote);
-                                header.append(preProcessValue(v.getAttributeName()));
-                                header.append(quote);
+                                writer.write(quote);
+                                writer.write(preProcessValue(v.getAttributeName(), counts));
+                                writer.write(quote);
                             }
-                            fileContent.append(header);
-                            fileContent.append("\n");
+                            writer.write("\n");
 
                             firstLine = false;
                         }
 
                         // then, write records
                         boolean firstAttribute = true;
-                        final StringBuilder line = new StringBuilder();
                         for (final Value v : record) {
                             if (firstAttribute) {
                                 firstAttribute = false;
                             } else {
-                                line.append(delimitator);
+                                writer.write(delimitator);
                             }
-                            line.append(quote);
-                            line.append(preProcessValue(v.getValue().toString()));
-                            line.append(quote);
+                            writer.write(quote);
+                            writer.write(preProcessValue(v.getValue().toString(), counts));
+                            writer.write(quote);
                         }
-                        fileContent.append(line);
-                        fileContent.append("\n");
+                        writer.write("\n");
                     }
                 }
             }
-
-            // write to file
-            fw.append(fileContent.toString());
-
-            fw.flush();
-            fw.close();
         } catch (IOException e) {
             context.getLog().err(e.getMessage());
         }
     }
 
     /**
-     * Uses existing table, converts it to XLS format and saves in file.
+     * @param fileName file name which will be created, relative to the working directory
+     * @param gzip     true to compress the file with gzip
+     * @return buffered writer to the file, using the default character set
+     * @throws IOException if the file cannot be created
+     */
+    private Writer openWriter(final String fileName, final boolean gzip) throws IOException
+    {
+        OutputStream out = new FileOutputStream(context.getWorkingDirectory() + File.separator + fileName);
+        if (gzip) {
+            try {
+                out = new GZIPOutputStream(out, writeBufferSize);
+            } catch (IOException e) {
+                out.close();
+                throw e;
+            }
+        }
+        return new BufferedWriter(new OutputStreamWriter(out, Charset.defaultCharset()), writeBufferSize);
+    }
+
+    /**
+     * Uses existing table, converts it to XLS format and saves in file. Rows not fitting into one sheet are continued
+     * on further sheets, each starting with the header.
      *
      * @param tableOrViewName table name which will be exported
      * @param fileName        file name which will be created
      * @param partitions      part of data from database
-     * @param workbook        Workbook object, determines which version of Excel format will be used (XSSFWorkbook object for XLSX and HSSFWorkbook for XLS)
+     * @param workbook        Workbook object, determines which version of Excel format will be used (SXSSFWorkbook object for XLSX and HSSFWorkbook for XLS)
+     * @param maxRowsPerSheet number of rows the format allows per sheet
      */
-    private void exportToXLS(final String tableOrViewName, final String fileName, final Partitioning partitions,
-                             final Workbook workbook)
+    private void exportToXLS(final String tableOrViewName, final String fileName, final KeysetPartitioning partitions,
+                             final Workbook workbook, final int maxRowsPerSheet)
     {
-        final Sheet sheet = workbook.createSheet(tableOrViewName);
+        final int sheetRows = -1 == rowsPerSheet ? maxRowsPerSheet : Math.min(rowsPerSheet, maxRowsPerSheet);
+        final long start = System.currentTimeMillis();
 
-        for (final Partition partition : partitions) {
+        Sheet sheet = null;
+        int rowNum = 0;
+        long firstRecord = 0;
+        for (final List<Record> recordsInPartition : partitions) {
             context.getLog().info("Reading result for partition...");
-            final List<Record> recordsInPartition = database.getAllRecordsFromTableOrView(tableOrViewName, partition.getFirstRecord(), partition.getLength(),
-                null, null);
-
-            int rowNum = 0;
-            boolean first = true;
 
             if (null != recordsInPartition) {
+                context.getLog().info("...done. Write records " + firstRecord + "-" + (firstRecord + recordsInPartition.size() - 1));
+                firstRecord += recordsInPartition.size();
                 for (final Record record : recordsInPartition) {
-                    context.getLog().info("...done. Write records " + partition.getFirstRecord() + "" + (partition.getFirstRecord() + partition.getLength() - 1));
-                    Row row = sheet.createRow(rowNum++);
-                    int cellNum = 0;
-                    if (first) {
+                    // header on top of each sheet
+                    if (null == sheet || rowNum == sheetRows) {
+                        final int sheetNumber = workbook.getNumberOfSheets() + 1;
+                        sheet = workbook.createSheet(sheetNumber == 1 ? tableOrViewName : tableOrViewName + "_" + sheetNumber);
+                        rowNum = 0;
+                        final Row header = sheet.createRow(rowNum++);
+                        int cellNum = 0;
                         for (final String columnName : record.getColumnNames()) {
-                            final Cell cell = row.createCell(cellNum++);
+                            final Cell cell = header.createCell(cellNum++);
                             cell.setCellValue(columnName);
                         }
-                        cellNum = 0;
-                        row = sheet.createRow(rowNum++);
-                        first = false;
                     }
+
+                    final Row row = sheet.createRow(rowNum++);
+                    int cellNum = 0;
                     for (final Value v : record) {
                         final Cell cell = row.createCell(cellNum++);
                         cell.setCellValue(v.getValue().toString());
@@ -372,81 +558,142 @@ public class ExportInterpreter extends AbstractInterpreter {
                 }
             }
         }
+        if (null == sheet) {
+            workbook.createSheet(tableOrViewName);
+        }
 
-        final FileOutputStream out;
-        try {
-            out = new FileOutputStream(new File(context.getWorkingDirectory() + File.separator + fileName));
+        try (FileOutputStream out = new FileOutputStream(new File(context.getWorkingDirectory() + File.separator + fileName))) {
             workbook.write(out);
-            out.close();
         } catch (IOException e) {
             context.getLog().err(e.getMessage());
+        } finally {
+            if (workbook instanceof SXSSFWorkbook) {
+                // deletes the temporary files
+                ((SXSSFWorkbook) workbook).dispose();
+            }
         }
+
+        final long millis = Math.max(1, System.currentTimeMillis() - start);
+        context.getLog().info("Wrote " + firstRecord + " records to " + workbook.getNumberOfSheets() + " sheet(s) in " + millis + " ms ("
+            + (firstRecord * 1000 / millis) + " records/s)");
     }
 
     /**
-     * Uses existing table, converts it to xml format and saves in file.
+     * Uses existing table, converts it to xml format and saves in file. The records are streamed to the file as they
+     * are read, so the document is never held in memory.
      *
      * @param tableOrViewName table name which will be exported
      * @param fileName        file name which will be created
      * @param partitions      part of data from database
      */
-    private void exportToXML(final String tableOrViewName, final String fileName, final Partitioning partitions)
+    private void exportToXML(final String tableOrViewName, final String fileName, final KeysetPartitioning partitions)
     {
-
-        final FileWriter fw;
-        try {
-            fw = new FileWriter(context.getWorkingDirectory() + File.separator + fileName);
-
-            final StringBuilder fileContent = new StringBuilder();
-            fileContent.append(XML_DEF_LINE);
-            fileContent.append("\n<DocumentElement>");
-            for (final Partition partition : partitions) {
-                final List<Record> recordsInPartition = database.getAllRecordsFromTableOrView(tableOrViewName, partition.getFirstRecord(),
-                    partition.getLength(), null, null);
-                if (null != recordsInPartition) {
-                    for (final Record record : recordsInPartition) {
-                        context.getLog().info("...done. Write records " + partition.getFirstRecord() + "" + (partition.getFirstRecord() + partition.getLength() - 1));
-
-                        fileContent.append("\n<");
-                        fileContent.append(tableOrViewName);
-                        fileContent.append(">");
-
-                        final StringBuilder line = new StringBuilder();
-                        for (Value v : record) {
-                            line.append("\n\t<");
-                            line.append(v.getAttributeName());
-                            line.append(">");
-                            final String escapedXmlValue = StringEscapeUtils.escapeXml(v.getValue().toString());
-                            if (v.getValue().toString().length() < SAME_LINE_XML_LIMIT) {
-                                line.append(escapedXmlValue);
-                                line.append("</");
-                                line.append(v.getAttributeName());
-                                line.append(">");
-                            } else {
-                                line.append("\n\t\t");
-                                line.append(escapedXmlValue);
-                                line.append("\n\t");
-                                line.append("</");
-                                line.append(v.getAttributeName());
-                                line.append(">");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(context.getWorkingDirectory() + File.separator + fileName), writeBufferSize)) {
+            final XMLStreamWriter xml = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+            try {
+                xml.writeStartDocument("UTF-8", "1.0");
+                writeXmlWhitespace(xml, "\n");
+                xml.writeStartElement(XML_DOCUMENT_ELEMENT);
+
+                long count = 0;
+                for (final List<Record> recordsInPartition : partitions) {
+                    if (null != recordsInPartition) {
+                        for (final Record record : recordsInPartition) {
+                            writeXmlWhitespace(xml, "\n");
+                            xml.writeStartElement(tableOrViewName);
+                            for (Value v : record) {
+                                final String value = v.getValue().toString();
+                                writeXmlWhitespace(xml, "\n\t");
+                                xml.writeStartElement(v.getAttributeName());
+                                if (value.length() < SAME_LINE_XML_LIMIT) {
+                                    xml.writeCharacters(value);
+                                } else {
+                                    writeXmlWhitespace(xml, "\n\t\t");
+                                    xml.writeCharacters(value);
+                                    writeXmlWhitespace(xml, "\n\t");
+                                }
+                                xml.writeEndElement();
                             }
+                            writeXmlWhitespace(xml, "\n");
+                            xml.writeEndElement();
                         }
-                        fileContent.append(line);
-
-                        fileContent.append("\n</");
-                        fileContent.append(tableOrViewName);
-                        fileContent.append(">");
+                        count += recordsInPartition.size();
+                        progressCallback.progress(count);
                     }
                 }
+
+                writeXmlWhitespace(xml, "\n");
+                xml.writeEndElement();
+                xml.writeEndDocument();
+            } finally {
+                xml.close();
             }
-            fileContent.append("\n</DocumentElement>");
+        } catch (IOException | XMLStreamException e) {
+            context.getLog().err(e.getMessage());
+        }
+    }
+
+    /**
+     * writes line breaks and indentation, unless in compact mode
+     */
+    private void writeXmlWhitespace(final XMLStreamWriter xml, final String whitespace) throws XMLStreamException
+    {
+        if (!compactXml) {
+            xml.writeCharacters(whitespace);
+        }
+    }
+
+    /**
+     * Uses existing table and saves it in BoilerSuit's binary columnar format, with the column types of the table. The
+     * values are read as stored, such that NULLs and numbers are written faithfully.
+     *
+     * @param tableOrViewName table name which will be exported
+     * @param fileName        file name which will be created
+     */
+    private void exportToColumnar(final String tableOrViewName, final String fileName)
+    {
+        final List<Record> tableInfo = database.prepare("PRAGMA table_info(" + tableOrViewName + ")");
+        if (null == tableInfo) {
+            return;
+        }
+        final String[] columnNames = new String[tableInfo.size()];
+        final ColumnType[] columnTypes = new ColumnType[tableInfo.size()];
+        for (int i = 0; i < tableInfo.size(); i++) {
+            columnNames[i] = tableInfo.get(i).getValue("name").getValue().toString();
+            columnTypes[i] = ColumnType.fromDeclaration(tableInfo.get(i).getValue("type").getValue().toString());
+        }
 
-            // write to file
-            fw.append(fileContent.toString());
-            fw.flush();
-            fw.close();
+        final OutputStream out;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(context.getWorkingDirectory() + File.separator + fileName), writeBufferSize);
         } catch (IOException e) {
             context.getLog().err(e.getMessage());
+            return;
+        }
+        final IRecordCursor cursor = database.openTypedCursor("SELECT * FROM " + tableOrViewName);
+        if (null == cursor) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                context.getLog().err(e.getMessage());
+            }
+            return;
+        }
+        try (ColumnarFileWriter writer = new ColumnarFileWriter(out, columnNames, columnTypes, compressColumnar)) {
+            long count = 0;
+            while (cursor.hasNext()) {
+                writer.write(cursor.next());
+                if (++count % FILE_WRITE_PARTITION_SIZE == 0) {
+                    progressCallback.progress(count);
+                }
+            }
+            if (count % FILE_WRITE_PARTITION_SIZE != 0) {
+                progressCallback.progress(count);
+            }
+        } catch (IOException e) {
+            context.getLog().err(e.getMessage());
+        } finally {
+            cursor.close();
         }
     }
 
@@ -455,11 +702,12 @@ public class ExportInterpreter extends AbstractInterpreter {
      *
      * @param tableOrViewName is name of table or view
      * @param fileName        is name of file
+     * @param counts          counts the values in which the delimitator or quote was replaced
      *
      * @return processing result with message whether exported successfully or not
      */
 
-    private ProcessingResult exportVariable(String tableOrViewName, final String fileName)
+    private ProcessingResult exportVariable(String tableOrViewName, final String fileName, final ReplacementCounts counts)
     {
         if (!database.existsTableOrView(tableOrViewName)) {
             tableOrViewName = Variable.getTableName(tableOrViewName);
@@ -469,15 +717,19 @@ public class ExportInterpreter extends AbstractInterpreter {
             }
         }
 
+        // compressed files are recognized by the extension before .gz
+        final boolean gzip = fileName.toLowerCase().endsWith(GZIP_FILE_EXT);
+        final String uncompressedFileName = gzip ? fileName.substring(0, fileName.length() - GZIP_FILE_EXT.length()) : fileName;
+
         // where is the last point in the filename (before last extension begins)
         int pointPos = -1;
-        while (fileName.indexOf(".", pointPos + 1) > pointPos) {
-            pointPos = fileName.indexOf(".", pointPos + 1);
+        while (uncompressedFileName.indexOf(".", pointPos + 1) > pointPos) {
+            pointPos = uncompressedFileName.indexOf(".", pointPos + 1);
         }
 
         SupportedFileExt fileExt;
 
-        final String fileExtStr = fileName.substring(pointPos + 1).toUpperCase();
+        final String fileExtStr = uncompressedFileName.substring(pointPos + 1).toUpperCase();
 
         if (-1 == pointPos) {
             fileExt = SupportedFileExt.CSV;
@@ -488,16 +740,23 @@ public class ExportInterpreter extends AbstractInterpreter {
                 return new ProcessingResult(ProcessingResult.ResultType.MESSAGE, TXT_EXPORT_NOT_SUPPORTED);
             }
         }
+        if (gzip && !SupportedFileExt.CSV.equals(fileExt)) {
+            return new ProcessingResult(ProcessingResult.ResultType.MESSAGE, TXT_EXPORT_NOT_SUPPORTED);
+        }
 
-        final Partitioning partitions = new Partitioning(database.count(tableOrViewName), FILE_WRITE_PARTITION_SIZE);
+        final KeysetPartitioning partitions = new KeysetPartitioning(database, tableOrViewName, FILE_WRITE_PARTITION_SIZE);
         if (SupportedFileExt.CSV.equals(fileExt)) {
-            exportToCsv(tableOrViewName, fileName, partitions);
+            exportToCsv(tableOrViewName, fileName, partitions, gzip, counts);
         } else if (SupportedFileExt.XML.equals(fileExt)) {
             exportToXML(tableOrViewName, fileName, partitions);
+        } else if (SupportedFileExt.BSC.equals(fileExt)) {
+            exportToColumnar(tableOrViewName, fileName);
         } else if (SupportedFileExt.XLSX.equals(fileExt)) {
-            exportToXLS(tableOrViewName, fileName, partitions, new XSSFWorkbook());
+            final SXSSFWorkbook workbook = new SXSSFWorkbook(XLSX_ROW_WINDOW);
+            workbook.setCompressTempFiles(true);
+            exportToXLS(tableOrViewName, fileName, partitions, workbook, SpreadsheetVersion.EXCEL2007.getMaxRows());
         } else if (SupportedFileExt.XLS.equals(fileExt)) {
-            exportToXLS(tableOrViewName, fileName, partitions, new HSSFWorkbook());
+            exportToXLS(tableOrViewName, fileName, partitions, new HSSFWorkbook(), SpreadsheetVersion.EXCEL97.getMaxRows());
         }
 
          String message;
@@ -513,7 +772,7 @@ public class ExportInterpreter extends AbstractInterpreter {
      * @param indexOfWITH       index of 'WITH' clause find in command string
      * @param secondIndexOfWITH index of second occurs of 'WITH' clause find in command string
      *
-     * @return true if command contains delim() or quote() functions
+     * @return true if command contains delim(), quote(), buffer(), sheetrows(), compact(), compress() or parallel() functions, and their numbers are valid
      */
     private boolean parseWithParameters(int indexOfWITH, int secondIndexOfWITH)
     {
@@ -538,29 +797,89 @@ public class ExportInterpreter extends AbstractInterpreter {
             if (null != replacequoteList && !replacequoteList.isEmpty()) {
                 replaceQuote = replacequoteList.get(0);
             }
+            final List<String> bufferList = wcp.getArgumentsIgnoreCase("buffer");
+            if (null != bufferList && !bufferList.isEmpty()) {
+                try {
+                    writeBufferSize = Integer.parseInt(bufferList.get(0).trim());
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+                if (writeBufferSize <= 0) {
+                    return false;
+                }
+                delimOrQuoteSet = true;
+            }
+            final List<String> sheetRowsList = wcp.getArgumentsIgnoreCase("sheetrows");
+            if (null != sheetRowsList && !sheetRowsList.isEmpty()) {
+                try {
+                    rowsPerSheet = Integer.parseInt(sheetRowsList.get(0).trim());
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+                // at least the header and one record
+                if (rowsPerSheet < 2) {
+                    return false;
+                }
+                delimOrQuoteSet = true;
+            }
+            if (null != wcp.getArgumentsIgnoreCase("compact")) {
+                compactXml = true;
+                delimOrQuoteSet = true;
+            }
+            if (null != wcp.getArgumentsIgnoreCase("compress")) {
+                compressColumnar = true;
+                delimOrQuoteSet = true;
+            }
+            final List<String> parallelList = wcp.getArgumentsIgnoreCase("parallel");
+            if (null != parallelList) {
+                if (parallelList.isEmpty() || parallelList.get(0).trim().isEmpty()) {
+                    parallelism = Runtime.getRuntime().availableProcessors();
+                } else {
+                    try {
+                        parallelism = Integer.parseInt(parallelList.get(0).trim());
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                    if (parallelism < 1) {
+                        return false;
+                    }
+                }
+                delimOrQuoteSet = true;
+            }
         }
         return delimOrQuoteSet;
     }
 
     /**
      * @param rawValue exporting value
+     * @param counts   counts the values in which the delimitator or quote was replaced
      * @return exporting value after replaced the characters of used delimitator or quote
      */
-    private String preProcessValue(final String rawValue)
+    private String preProcessValue(final String rawValue, final ReplacementCounts counts)
     {
         String value = rawValue;
         if (!delimitator.equals("")) {
             if(value.contains(delimitator)) {
                 value = value.replace(delimitator, replaceDelimitator);
-                delimitatorReplacementCount++;
+                counts.delimitator++;
             }
         }
         if (!quote.equals("")) {
             if(value.contains(quote)) {
                 value = value.replace(quote, replaceQuote);
-                quoteReplacementCount++;
+                counts.quote++;
             }
         }
         return value;
     }
+
+    /**
+     * number of values of one exported variable in which the delimitator or quote was replaced
+     */
+    private static class ReplacementCounts {
+
+        private int delimitator = 0;
+
+        private int quote = 0;
+    }
 }
@@ -56,9 +56,44 @@ import java.util.Hashtable;
  *             <td>
  *                 For most records, there will be more than one match, and they all vary by quality. If the best
  *                 match is just enough, then this option can be used to restrict the result to the best matches per
- *                 left record against right record.
+ *                 left record against right record. Same as TOP(1).
  *             </td>
- *         </tr>*
+ *         </tr>
+ *         <tr>
+ *             <td class="syntax"><b>TOP(</b><i>k</i><b>)</b></td>
+ *             <td>
+ *                 Restricts the result to the k best non exact matches per left record, best first. The quality
+ *                 of a match is the average of its scores. Exact matches are always all reported, and non exact
+ *                 matches only if there are no exact ones.
+ *             </td>
+ *         </tr>
+ *         <tr>
+ *             <td class="syntax"><b>BLOCKING(</b><i>method</i>[, <i>n</i>]<b>)</b></td>
+ *             <td>
+ *                 Compares each left record only with the right records sharing a blocking key, instead of with all
+ *                 right records. Method is one of <i>qgram</i> (shared substrings of n characters, default 3),
+ *                 <i>token</i> (shared words), <i>phonetic</i> (shared Soundex code of a word) or
+ *                 <i>sortedneighbourhood</i> (the n records next to it in sort order, default 20).
+ *                 Matches between records without common key are lost; the number of compared pairs and the share of
+ *                 matches found (estimated on a sample) are reported in the log.
+ *             </td>
+ *         </tr>
+ *         <tr>
+ *             <td class="syntax"><b>PARALLEL</b>[<b>(</b><i>n</i><b>)</b>]</td>
+ *             <td>
+ *                 Scores the left records with n threads at the same time (all processors if n is omitted).
+ *                 The result is the same as without this option, in the same order.
+ *             </td>
+ *         </tr>
+ *         <tr>
+ *             <td class="syntax"><b>RESUME</b></td>
+ *             <td>
+ *                 Continues a match which was interrupted (e.g., because the program was stopped), keeping the
+ *                 matches found so far. The fuzzy match stores its progress after each pair of partitions (of 10000
+ *                 records) in <i>result_table_prefix</i>_match_progress, which is removed once the match is complete.
+ *                 Without progress, or if the tables to match have changed, the match starts from scratch.
+ *             </td>
+ *         </tr>
  *     </table>
  * </p>
  * </p>
@@ -66,6 +101,8 @@ import java.util.Hashtable;
  * MATCH table_x(attribute1) ON table_y(attribute2)
  * MATCH table_x(attribute1) ON table_y(attribute2) WITH threshold(0.9)
  * MATCH table_x(attribute1, attribute2) ON table_y(attribute3, attribute4)
+ * MATCH table_x(attribute1) ON table_y(attribute2) WITH threshold(0.9), blocking(qgram, 3)
+ * MATCH table_x(attribute1) ON table_y(attribute2) WITH threshold(0.9), parallel(4)
  * ______________________________________________________________________________
  * THRESHOLD is used for different fuzzy match strategies, such as Jaro, Dice etc.
  * <p/>
@@ -180,6 +217,8 @@ public class MatchInterpreter extends AbstractInterpreter {
         matchArguments = new MatchArguments(leftAttributesString, rightAttributesString, withString);
         if (!matchArguments.isInitSuccess()) {
             context.getLog().err("Problems with initializing match arguments.");
+            syntaxError.setResultSummary("Problems with initializing match arguments.");
+            return false;
         }
 
         // check domains
@@ -0,0 +1,93 @@
+package ch.brickwork.bsuit.interpreter.interpreters;
+
+import ch.brickwork.bsuit.database.ITunableDatabase;
+import ch.brickwork.bsuit.database.Variable;
+import ch.brickwork.bsuit.globals.IBoilersuitApplicationContext;
+
+/**
+ * <p>
+ *  Switches or prints out the performance profile of the database, i.e. how much durability is traded for speed
+ * </p>
+ * <h2>Syntax</h2>
+ * <p>
+ *     PROFILE {profile};   -- to switch the profile
+ *     PROFILE;             -- to print the current and the available profiles
+ * </p>
+ * <h2>Profiles (SQLite)</h2>
+ * <p>
+ *     <b>default</b>: rollback journal, every commit is synced to disk. Used if no other profile is chosen.<br/>
+ *     <b>balanced</b>: write-ahead log, synced at checkpoints only, larger cache.<br/>
+ *     <b>bulk-load</b>: write-ahead log, nothing synced, large cache and memory mapping. Only for data that can be
+ *     re-loaded, since the database may be corrupt after a crash.
+ * </p>
+ * <h2>Examples</h2>
+ * <pre>
+ * PROFILE bulk-load;
+ * := *.csv;
+ * PROFILE default;
+ * </pre>
+ */
+public class PerformanceProfileInterpreter extends AbstractInterpreter {
+
+    private static final String PROFILE_COMMAND = "profile";
+
+    private static final String TXT_NOT_SUPPORTED = "The database does not support performance profiles";
+
+    public PerformanceProfileInterpreter(final Variable targetVariable, final String command, final IBoilersuitApplicationContext context)
+    {
+        super(targetVariable, command, context);
+    }
+
+    @Override
+    public boolean needsTargetVariable() { return false; }
+
+    @Override
+    public ProcessingResult process()
+    {
+        if (!(context.getDatabase() instanceof ITunableDatabase)) {
+            return new ProcessingResult(ProcessingResult.ResultType.MESSAGE, TXT_NOT_SUPPORTED, command);
+        }
+        final ITunableDatabase database = (ITunableDatabase) context.getDatabase();
+
+        final String profileName = command.substring(PROFILE_COMMAND.length()).trim();
+
+        // simply to print ("profile"):
+        if (profileName.equals("")) {
+            return new ProcessingResult(ProcessingResult.ResultType.MESSAGE, "Current performance profile is "
+                    + database.getPerformanceProfileName() + " (available: " + database.getPerformanceProfileNames() + ")", command);
+        }
+
+        if (!isPerformanceProfileName(database, profileName)) {
+            return ProcessingResult.syntaxError("Unknown performance profile " + profileName + ", use one of "
+                    + database.getPerformanceProfileNames());
+        }
+        if (!database.setPerformanceProfile(profileName)) {
+            final String message = "Could not apply performance profile " + profileName + ", performance profile is still "
+                    + database.getPerformanceProfileName();
+            context.getLog().err(message);
+            return new ProcessingResult(ProcessingResult.ResultType.FATAL_ERROR, message, command);
+        }
+        context.getLog().info("Performance profile is now " + database.getPerformanceProfileName());
+        return new ProcessingResult(ProcessingResult.ResultType.MESSAGE, "Performance profile is now " + database.getPerformanceProfileName(), script);
+    }
+
+    /**
+     * @return true if the database has a profile of this name, case insensitive
+     */
+    private static boolean isPerformanceProfileName(final ITunableDatabase database, final String profileName)
+    {
+        for (final String name : database.getPerformanceProfileNames()) {
+            if (name.equalsIgnoreCase(profileName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean understands()
+    {
+        final String lowerCaseCommand = command.toLowerCase();
+        return lowerCaseCommand.equals(PROFILE_COMMAND) || lowerCaseCommand.startsWith(PROFILE_COMMAND + " ");
+    }
+}
@@ -0,0 +1,66 @@
+package ch.brickwork.bsuit.interpreter.interpreters;
+
+import ch.brickwork.bsuit.database.IFileBasedDatabase;
+import ch.brickwork.bsuit.database.Variable;
+import ch.brickwork.bsuit.globals.IBoilersuitApplicationContext;
+
+import java.io.File;
+
+/**
+ * <p>
+ *  Writes the current state of the database to a file. Mainly meant for databases kept in memory (see
+ *  DefaultBoilersuitApplicationContext.IN_MEMORY_PROPERTY), which are otherwise only written when BoilerSuit ends,
+ *  but works for file based databases as well (as a backup copy).
+ * </p>
+ * <h2>Syntax</h2>
+ * <p>
+ *     SNAPSHOT;              -- write to the database file (data.db) in the working directory
+ *     SNAPSHOT {filename};   -- write to filename, relative to the working directory
+ * </p>
+ * <h2>Examples</h2>
+ * <pre>
+ * SNAPSHOT;
+ * SNAPSHOT before_match.db;
+ * </pre>
+ */
+public class SnapshotInterpreter extends AbstractInterpreter {
+
+    private static final String SNAPSHOT_COMMAND = "snapshot";
+
+    private static final String TXT_NOT_SUPPORTED = "The database does not support snapshots";
+
+    public SnapshotInterpreter(final Variable targetVariable, final String command, final IBoilersuitApplicationContext context)
+    {
+        super(targetVariable, command, context);
+    }
+
+    @Override
+    public boolean needsTargetVariable() { return false; }
+
+    @Override
+    public ProcessingResult process()
+    {
+        if (!(context.getDatabase() instanceof IFileBasedDatabase)) {
+            return new ProcessingResult(ProcessingResult.ResultType.MESSAGE, TXT_NOT_SUPPORTED, command);
+        }
+        final IFileBasedDatabase database = (IFileBasedDatabase) context.getDatabase();
+
+        String fileName = command.substring(SNAPSHOT_COMMAND.length()).trim();
+        if (fileName.equals("")) {
+            fileName = database.getDefaultDBFileName();
+        }
+        final File file = new File(fileName).isAbsolute() ? new File(fileName) : new File(context.getWorkingDirectory(), fileName);
+
+        if (!database.snapshot(file.getPath())) {
+            return new ProcessingResult(ProcessingResult.ResultType.FATAL_ERROR, "Snapshot to " + file.getPath() + " failed", command);
+        }
+        return new ProcessingResult(ProcessingResult.ResultType.MESSAGE, "Snapshot written to " + file.getPath(), script);
+    }
+
+    @Override
+    public boolean understands()
+    {
+        final String lowerCaseCommand = command.toLowerCase();
+        return lowerCaseCommand.equals(SNAPSHOT_COMMAND) || lowerCaseCommand.startsWith(SNAPSHOT_COMMAND + " ");
+    }
+}
@@ -1,11 +1,11 @@
 package ch.brickwork.bsuit.interpreter.interpreters;
 
 import ch.brickwork.bsuit.database.IDatabase;
+import ch.brickwork.bsuit.database.IRecordCursor;
 import ch.brickwork.bsuit.database.Record;
 import ch.brickwork.bsuit.database.Value;
 import ch.brickwork.bsuit.database.Variable;
 import ch.brickwork.bsuit.globals.IBoilersuitApplicationContext;
-import ch.brickwork.bsuit.util.Partition;
 import ch.brickwork.bsuit.util.Partitioning;
 import ch.brickwork.bsuit.util.TextUtils;
 import org.apache.poi.ss.usermodel.DateUtil;
@@ -142,6 +142,18 @@ public class TableExpressionInterpreter extends AbstractInterpreter {
 
     private ArrayList<String> defaultPossibleFormats;
 
+    /**
+     * parsers of the formats tried by magicdate, created once per format rather than per value
+     */
+    private final Map<String, SimpleDateFormat> magicDateParsers = new HashMap<>();
+
+    private final SimpleDateFormat magicDateFormatter = new SimpleDateFormat("dd.MM.yyyy");
+
+    /**
+     * regular expressions of suck, compiled once rather than per value
+     */
+    private final Map<String, Pattern> suckPatterns = new HashMap<>();
+
     /**
      * Used to number the suckattributes in the result in a sequential manner, if they have no 'AS' indicated,
      * e.g. if someone uses
@@ -190,23 +202,32 @@ public class TableExpressionInterpreter extends AbstractInterpreter {
      * <p>
      * formatnumber(string, XDYY)
      * { X1YY, X2YY, X10YY, X1000YY, X9999YY }
+     * <p>
+     * Unlike the other functions, formatnumber is translated to an SQL expression, such that the database evaluates
+     * it while creating the target table, rather than the records being read back and post-processed.
+     *
+     * @param attribute    SQL expression of the value to format
+     * @param formatString format, e.g. A-DDDD
+     * @return SQL expression giving the formatted value
      */
-    private String bsfFormatNumber(final String value, final String formatString) {
-        if (formatString.contains("D")) {
-            final int targetLength = TextUtils.count(formatString, "D");
-            final int missing = Math.max(targetLength - value.trim().length(), 0);
-
-            String trailingZeros = "";
-            for (int i = 1; i <= missing; i++) {
-                trailingZeros += '0';
-            }
-            final String prefix = formatString.substring(0, formatString.indexOf("D"));
-            final String postfix = formatString.substring(formatString.indexOf("D") + targetLength);
-
-            return prefix + trailingZeros + value.trim() + postfix;
-        } else {
+    private String bsfFormatNumberSql(final String attribute, final String formatString) {
+        final String value = "ifnull(" + attribute + ", '')";
+        if (!formatString.contains("D")) {
             return value;
         }
+
+        final int targetLength = TextUtils.count(formatString, "D");
+        final String trimmedValue = "trim(" + value + ", ' ' || char(9, 10, 13))";
+
+        final StringBuilder zeros = new StringBuilder();
+        for (int i = 0; i < targetLength; i++) {
+            zeros.append('0');
+        }
+        final String prefix = formatString.substring(0, formatString.indexOf("D"));
+        final String postfix = formatString.substring(formatString.indexOf("D") + targetLength);
+
+        return "(" + toSqlLiteral(prefix) + " || substr('" + zeros + "', 1, max(" + targetLength + " - length(" + trimmedValue
+                + "), 0)) || " + trimmedValue + " || " + toSqlLiteral(postfix) + ")";
     }
 
     /**
@@ -258,8 +279,12 @@ public class TableExpressionInterpreter extends AbstractInterpreter {
                 date = parseExcelDate(value, true);
             } else {
                 try {
-                    final SimpleDateFormat parser = new SimpleDateFormat(tryFormat);
-                    parser.setLenient(false);
+                    SimpleDateFormat parser = magicDateParsers.get(tryFormat);
+                    if (parser == null) {
+                        parser = new SimpleDateFormat(tryFormat);
+                        parser.setLenient(false);
+                        magicDateParsers.put(tryFormat, parser);
+                    }
                     date = parser.parse(value);
 
                 } catch (ParseException e) {
@@ -278,8 +303,6 @@ public class TableExpressionInterpreter extends AbstractInterpreter {
             }
         }
 
-        final SimpleDateFormat formatter = new SimpleDateFormat("dd.MM.yyyy");
-
         if (successFullParse == null) {
             context.getLog().warn("no parser found for: " + value);
             //    context.getDatabase().prepare("INSERT INTO warnings VALUES (date('now'), '" + assigned_variable + "', '" + value + "', 'magicdate', 'No parser worked')");
@@ -289,7 +312,7 @@ public class TableExpressionInterpreter extends AbstractInterpreter {
             //    context.getDatabase().prepare("INSERT INTO warnings VALUES (date('now'), '" + assigned_variable + "', '" + value + "', 'magicdate', 'Ambiguous')");
             return null;
         } else
-            return formatter.format(successFullParse);
+            return magicDateFormatter.format(successFullParse);
     }
 
     /**
@@ -308,10 +331,10 @@ public class TableExpressionInterpreter extends AbstractInterpreter {
      * @return sucked part of value, or "" if the value was not found, or if lesser values were found than the index is set to
      */
 
-    private String bsfSuck(final String value, final String regex, int num) {
+    private String bsfSuck(final String value, final Pattern regex, int num) {
         final List<String> results = new ArrayList<>();
         int i = 0;
-        for (Matcher m = Pattern.compile(regex).matcher(value); i <= num && m.find(); i++) {
+        for (Matcher m = regex.matcher(value); i <= num && m.find(); i++) {
             results.add(m.toMatchResult().group());
         }
         if (num - 1 < results.size())
@@ -453,13 +476,13 @@ public class TableExpressionInterpreter extends AbstractInterpreter {
             }
             sql.append("SELECT ");
             boolean firstAttribute = true;
+            final Hashtable<String, Integer> tableOrViewColumnNamesHash = database.getTableOrViewColumnNamesHash(viewName);
             for (final String columnName : attributeList) {
                 if (firstAttribute) {
                     firstAttribute = false;
                 } else {
                     sql.append(", ");
                 }
-                final Hashtable<String, Integer> tableOrViewColumnNamesHash = database.getTableOrViewColumnNamesHash(viewName);
                 if (null != tableOrViewColumnNamesHash && tableOrViewColumnNamesHash.get(columnName) != null) {
                     sql.append(database.sanitizeName(columnName));
                 } else {
@@ -555,8 +578,6 @@ public class TableExpressionInterpreter extends AbstractInterpreter {
                         perfectRun &= useHashFunction(r, pi);
                     } else if (pi.getName().equalsIgnoreCase("SUCK")) {
                         perfectRun &= useSuckFunction(r, pi);
-                    } else if (pi.getName().equalsIgnoreCase("FORMATNUMBER")) {
-                        perfectRun &= useFormatnumberFunction(r, pi);
                     }
                 }
             }
@@ -718,13 +739,20 @@ public class TableExpressionInterpreter extends AbstractInterpreter {
             return null;
         }
 
-        // prepare instruction with arguments
-        final PreProcessInstruction prepo = new PreProcessInstruction("FORMATNUMBER", preDefinedAs == null ? database.sanitizeName(arg) : preDefinedAs);
-        prepo.addArgument("attribute", formatnumberArguments.get(0).trim().replace("+", "||"));
-        prepo.addArgument("formatstring", formatnumberArguments.get(1).trim());
-        postProcessInstructions.add(prepo);
+        // no post-processing: the database formats the numbers itself
+        final String formatNumberSql = bsfFormatNumberSql(formatnumberArguments.get(0).trim().replace("+", "||"),
+                formatnumberArguments.get(1).trim());
+        final String attributeName = preDefinedAs == null ? database.sanitizeName(arg) : preDefinedAs;
+        context.getLog().log("Translated FORMATNUMBER to SQL for attribute " + attributeName);
 
-        return prepo.getArgument("attribute") + (preDefinedAs == null ? " AS " + database.sanitizeName(arg) : "");
+        return formatNumberSql + (preDefinedAs == null ? " AS " + attributeName : "");
+    }
+
+    /**
+     * @return text as SQL string literal, with ' escaped
+     */
+    private static String toSqlLiteral(final String text) {
+        return "'" + text.replace("'", "''") + "'";
     }
 
     /**
@@ -936,21 +964,43 @@ public class TableExpressionInterpreter extends AbstractInterpreter {
             processingResult.setSql("-- In principle:\n-- " + selectSql
                     + "\n-- (however, some magic was applied. SQL support for magic functions not provided in community edition.)", getTargetVariable().getVariableName());
 
+            // the select may be arbitrary (where, order by), so there is no row id to seek by: the result is read
+            // in one pass with a cursor and post-processed partition-wise. The target structure is set up first, since
+            // the target table cannot be (re)created while the cursor is reading
+            IRecordCursor cursor = database.openCursor(selectSql);
+            if (cursor == null) {
+                return new ProcessingResult(ProcessingResult.ResultType.FATAL_ERROR, "Serious problem post-processing " + assigned_variable);
+            }
+            final List<String> columnNames = cursor.getColumnNames();
+            cursor.close();
+            database.createOrReplaceVariableAndTable(getTargetVariable().getVariableName().toLowerCase(), "", "",
+                    columnNames.toArray(new String[columnNames.size()]), null);
+
             final Partitioning partitioning = new Partitioning(database.count(assigned_variable), MAGIC_FUNCTIONS_PARTITION_SIZE);
-            for (final Partition partition : partitioning) {
-                context.getLog().info("Postprocessing partition [" + partition.getNumber() + "/" + partitioning.countPartitions() + "]");
-                final String limitClause = " LIMIT " + partition.getFirstRecord() + "," + partition.getLength();
-                final List<Record> queryResult = database.prepare(selectSql + limitClause);
-                if (queryResult == null) {
-                    return new ProcessingResult(ProcessingResult.ResultType.FATAL_ERROR, "Serious problem post-processing " + assigned_variable);
-                }
-                // first partition: set up target structure
-                if (partition.getNumber() == 0) {
-                    database.createOrReplaceVariableAndTable(getTargetVariable().getVariableName().toLowerCase(), "", "", queryResult.get(0).getColumnNames(), null);
-                }
-                if (!postProcess(queryResult)) {
-                    return new ProcessingResult(ProcessingResult.ResultType.FATAL_ERROR, "Problems post-processing (check magicdates, etc.!) and check warnings!");
+            cursor = database.openCursor(selectSql);
+            if (cursor == null) {
+                return new ProcessingResult(ProcessingResult.ResultType.FATAL_ERROR, "Serious problem post-processing " + assigned_variable);
+            }
+            // all partitions are inserted in one transaction rather than one each
+            database.beginTransaction();
+            try {
+                int partitionNumber = 0;
+                while (cursor.hasNext()) {
+                    context.getLog().info("Postprocessing partition [" + partitionNumber++ + "/" + partitioning.countPartitions() + "]");
+                    final List<Record> queryResult = new ArrayList<>(MAGIC_FUNCTIONS_PARTITION_SIZE);
+                    while (cursor.hasNext() && queryResult.size() < MAGIC_FUNCTIONS_PARTITION_SIZE) {
+                        queryResult.add(cursor.next());
+                    }
+                    if (!postProcess(queryResult)) {
+                        return new ProcessingResult(ProcessingResult.ResultType.FATAL_ERROR, "Problems post-processing (check magicdates, etc.!) and check warnings!");
+                    }
                 }
+            } finally {
+                database.commitTransaction();
+                cursor.close();
+            }
+            if (cursor.isFailed()) {
+                return new ProcessingResult(ProcessingResult.ResultType.FATAL_ERROR, "Serious problem post-processing " + assigned_variable);
             }
         }
         // create view only
@@ -1047,32 +1097,6 @@ public class TableExpressionInterpreter extends AbstractInterpreter {
     }
 
 
-    /**
-     * Performs appropriate action when user use formatnumber() function (see {@link #bsfFormatNumber(String, String)} method).
-     *
-     * @param r  processing record from database
-     * @param pi instruction contains particular function
-     * @return true, if record could be successfully processed, false otherwise
-     */
-    private boolean useFormatnumberFunction(final Record r, final PreProcessInstruction pi) {
-        // @TODO: Workaround... check the sanitizing of column names. May be it should be consequentially
-        // done EVERYWHERE
-        String paramName;
-        if (pi.getParam().trim().startsWith("\"") && pi.getParam().trim().endsWith("\""))
-            paramName = pi.getParam().trim().substring(1, pi.getParam().trim().length() - 1);
-        else
-            paramName = pi.getParam().trim();
-
-        final String value = (String) r.getValue(paramName).getValue();
-        final String formatstring = pi.getArgument("formatstring");
-        if (null != formatstring) {
-            final String newValue = bsfFormatNumber(value, formatstring);
-            r.put(paramName, new Value(paramName, newValue).getValue());
-            return true;
-        } else
-            return false;
-    }
-
     /**
      * Performs appropriate action when user use hash() function (see {@link #bsfHash(String)} method).
      *
@@ -1162,7 +1186,12 @@ public class TableExpressionInterpreter extends AbstractInterpreter {
         final String regex = pi.getArgument("regex");
         if (null != attribute && null != regex) {
             try {
-                final String newValue = bsfSuck(value, regex, num);
+                Pattern pattern = suckPatterns.get(regex);
+                if (pattern == null) {
+                    pattern = Pattern.compile(regex);
+                    suckPatterns.put(regex, pattern);
+                }
+                final String newValue = bsfSuck(value, pattern, num);
                 r.put(paramName, new Value(paramName, newValue).getValue());
                 return true;
             } catch (PatternSyntaxException pse) {
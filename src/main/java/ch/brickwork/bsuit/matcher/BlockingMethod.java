@@ -0,0 +1,79 @@
+package ch.brickwork.bsuit.matcher;
+
+/**
+ * Blocking methods which can be chosen with the BLOCKING option of MATCH, see {@link IBlockingStrategy}
+ */
+public enum BlockingMethod {
+
+    /**
+     * common q-gram; parameter q, default 3
+     */
+    QGRAM("qgram") {
+        @Override
+        IBlockingStrategy createStrategy(final Integer parameter) {
+            return new QGramBlocking(null == parameter ? QGramBlocking.DEFAULT_Q : parameter);
+        }
+    },
+
+    /**
+     * common token
+     */
+    TOKEN("token") {
+        @Override
+        IBlockingStrategy createStrategy(final Integer parameter) {
+            return new TokenBlocking();
+        }
+    },
+
+    /**
+     * common Soundex code of a token
+     */
+    PHONETIC("phonetic") {
+        @Override
+        IBlockingStrategy createStrategy(final Integer parameter) {
+            return new PhoneticBlocking();
+        }
+    },
+
+    /**
+     * neighbours in sort order; parameter window size, default 20
+     */
+    SORTED_NEIGHBOURHOOD("sortedneighbourhood") {
+        @Override
+        IBlockingStrategy createStrategy(final Integer parameter) {
+            return new SortedNeighbourhoodBlocking(null == parameter ? SortedNeighbourhoodBlocking.DEFAULT_WINDOW : parameter);
+        }
+    };
+
+    private final String methodName;
+
+    BlockingMethod(final String methodName) {
+        this.methodName = methodName;
+    }
+
+    /**
+     * @return name as used in scripts
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * @param parameter parameter of the method (e.g. q), or null for the default
+     * @return new blocking strategy
+     */
+    abstract IBlockingStrategy createStrategy(Integer parameter);
+
+    /**
+     * @param methodName name as used in scripts, case insensitive
+     * @return method, or null if there is no method with this name
+     */
+    public static BlockingMethod byMethodName(final String methodName) {
+        for (BlockingMethod method : values()) {
+            if (method.methodName.equalsIgnoreCase(methodName.trim())) {
+                return method;
+            }
+        }
+        return null;
+    }
+}
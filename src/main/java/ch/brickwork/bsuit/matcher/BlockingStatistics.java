@@ -0,0 +1,79 @@
+package ch.brickwork.bsuit.matcher;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts how many pairs a blocking stage saved, and how many matches it missed. The latter is estimated on a sample
+ * of left records, which are compared with all right records in addition.
+ */
+class BlockingStatistics {
+
+    private final AtomicLong allPairs = new AtomicLong();
+
+    private final AtomicLong candidatePairs = new AtomicLong();
+
+    private final AtomicLong sampledMatches = new AtomicLong();
+
+    private final AtomicLong sampledMatchesFound = new AtomicLong();
+
+    private final AtomicLong sampledRecords = new AtomicLong();
+
+    /**
+     * @param all        number of pairs without blocking
+     * @param candidates number of pairs compared with blocking
+     */
+    void addPairs(final long all, final long candidates) {
+        allPairs.addAndGet(all);
+        candidatePairs.addAndGet(candidates);
+    }
+
+    /**
+     * @param matches matches of a sampled left record found without blocking
+     * @param found   those of these matches which were found with blocking, too
+     */
+    void addRecallSample(final long matches, final long found) {
+        sampledRecords.incrementAndGet();
+        sampledMatches.addAndGet(matches);
+        sampledMatchesFound.addAndGet(found);
+    }
+
+    long getAllPairs() {
+        return allPairs.get();
+    }
+
+    long getCandidatePairs() {
+        return candidatePairs.get();
+    }
+
+    /**
+     * @return share of the pairs which were not compared, between 0 and 1
+     */
+    double getReductionRatio() {
+        return allPairs.get() == 0 ? 0 : 1 - (double) candidatePairs.get() / allPairs.get();
+    }
+
+    /**
+     * @return estimated share of the matches found with blocking, between 0 and 1 (1 if the sample had no matches)
+     */
+    double getEstimatedRecall() {
+        return sampledMatches.get() == 0 ? 1 : (double) sampledMatchesFound.get() / sampledMatches.get();
+    }
+
+    /**
+     * @return true if the recall was estimated, i.e. left records were sampled
+     */
+    boolean isRecallEstimated() {
+        return sampledRecords.get() > 0;
+    }
+
+    @Override
+    public String toString() {
+        final String pairs = "compared " + getCandidatePairs() + " of " + getAllPairs() + " pairs (" + Math.round(getReductionRatio() * 1000) / 10.0
+                + "% saved), ";
+        if (!isRecallEstimated()) {
+            return pairs + "recall not estimated (every pair is a match without THRESHOLD, TOP or SUPPRESSSECONDBEST)";
+        }
+        return pairs + "found " + sampledMatchesFound.get() + " of " + sampledMatches.get() + " matches of the sample (estimated recall "
+                + Math.round(getEstimatedRecall() * 1000) / 10.0 + "%)";
+    }
+}
@@ -0,0 +1,27 @@
+package ch.brickwork.bsuit.matcher;
+
+import java.util.List;
+
+/**
+ * Blocking stage of the fuzzy match: instead of comparing every left record with every right record, a left record
+ * is only compared with the right records sharing a block with it (e.g., a common q-gram or token), the candidates.
+ * <p/>
+ * The right records are indexed once per right partition; after that, getCandidates() may be called from several
+ * threads at the same time.
+ */
+public interface IBlockingStrategy {
+
+    /**
+     * builds the index over the match keys of the right records, replacing any previous index
+     *
+     * @param rightKeys match keys of the right records
+     */
+    void index(List<String> rightKeys);
+
+    /**
+     * @param leftKey match key of a left record
+     * @return positions (in the list passed to index()) of the right records to compare the left record with,
+     * in ascending order
+     */
+    int[] getCandidates(String leftKey);
+}
@@ -0,0 +1,74 @@
+package ch.brickwork.bsuit.matcher;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Blocking by an inverted index: each key is assigned a set of blocking keys (e.g. its q-grams), and a left record
+ * is compared with all right records having at least one blocking key in common with it.
+ */
+abstract class InvertedIndexBlocking implements IBlockingStrategy {
+
+    /**
+     * blocking key -> positions of the right keys having it, ascending
+     */
+    private Map<String, int[]> index = new HashMap<>();
+
+    private int size;
+
+    @Override
+    public void index(final List<String> rightKeys) {
+        final Map<String, List<Integer>> positionLists = new HashMap<>();
+        for (int i = 0; i < rightKeys.size(); i++) {
+            for (String blockingKey : getBlockingKeys(rightKeys.get(i))) {
+                List<Integer> positions = positionLists.get(blockingKey);
+                if (null == positions) {
+                    positions = new ArrayList<>();
+                    positionLists.put(blockingKey, positions);
+                }
+                positions.add(i);
+            }
+        }
+
+        final Map<String, int[]> newIndex = new HashMap<>(positionLists.size() * 2);
+        for (Map.Entry<String, List<Integer>> entry : positionLists.entrySet()) {
+            final int[] positions = new int[entry.getValue().size()];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = entry.getValue().get(i);
+            }
+            newIndex.put(entry.getKey(), positions);
+        }
+        index = newIndex;
+        size = rightKeys.size();
+    }
+
+    @Override
+    public int[] getCandidates(final String leftKey) {
+        final BitSet candidates = new BitSet(size);
+        for (String blockingKey : getBlockingKeys(leftKey)) {
+            final int[] positions = index.get(blockingKey);
+            if (null != positions) {
+                for (int position : positions) {
+                    candidates.set(position);
+                }
+            }
+        }
+
+        final int[] result = new int[candidates.cardinality()];
+        int i = 0;
+        for (int position = candidates.nextSetBit(0); position >= 0; position = candidates.nextSetBit(position + 1)) {
+            result[i++] = position;
+        }
+        return result;
+    }
+
+    /**
+     * @param key match key
+     * @return blocking keys of the match key; must not be empty for non-empty keys
+     */
+    protected abstract Set<String> getBlockingKeys(String key);
+}
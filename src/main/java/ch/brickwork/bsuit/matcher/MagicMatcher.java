@@ -1,5 +1,6 @@
 package ch.brickwork.bsuit.matcher;
 
+import ch.brickwork.bsuit.database.KeysetPartitioning;
 import ch.brickwork.bsuit.database.Record;
 import ch.brickwork.bsuit.database.Value;
 import ch.brickwork.bsuit.database.Variable;
@@ -11,10 +12,11 @@ import ch.brickwork.bsuit.interpreter.interpreters.ProcessingResult;
 import ch.brickwork.bsuit.util.Partition;
 import ch.brickwork.bsuit.util.Partitioning;
 import ch.brickwork.bsuit.util.TextUtils;
-import net.ricecode.similarity.DiceCoefficientStrategy;
-import net.ricecode.similarity.JaroStrategy;
-import net.ricecode.similarity.JaroWinklerStrategy;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 
 /**
@@ -27,6 +29,22 @@ public class MagicMatcher {
     private static final int PARTITION_SIZE = 10000;
 
     private static final double THRESHOLD = -1;
+
+    /**
+     * number of left records per left partition which are compared with all right records in addition if blocking
+     * is used, to estimate how many matches the blocking misses
+     */
+    private static final int RECALL_SAMPLE_SIZE = 100;
+
+    /**
+     * number of left records scored by one task if matching in parallel
+     */
+    private static final int LEFT_CHUNK_SIZE = 50;
+
+    /**
+     * number of tasks per thread which may be scored ahead of the one being written
+     */
+    private static final int CHUNKS_AHEAD_PER_THREAD = 4;
     
     private final String leftTableAttrPrefix;
 
@@ -72,9 +90,33 @@ public class MagicMatcher {
     private List<String> leftTableColumnNamesMatchRelevant;
 
     /**
-     * writing matches
+     * writing matches: rows of the match table, in the order of matchColumnNames
+     */
+    private List<Object[]> matchBuffer = null;
+
+    /**
+     * writing matches: set if a flush of the match buffer failed while matching the current partition pair
+     */
+    private boolean matchWriteFailed = false;
+
+    /**
+     * columns the matches are written to, sanitized once when the first match is written
+     */
+    private List<String> matchColumnNames = null;
+
+    /**
+     * whether the match keys are written to columns of their own, i.e. they are not match attributes of the records
+     */
+    private boolean writeLeftKey;
+
+    private boolean writeRightKey;
+
+    /**
+     * columns of the partial exact match flags and of the legasthenic match flags, in the order they are written
      */
-    private List<Record> matchBuffer = null;
+    private List<String> partialExactColumnNames;
+
+    private List<String> legastColumnNames;
 
     private Hashtable<MatchOption, String> matchOptionAttributeNameMap;
 
@@ -89,12 +131,57 @@ public class MagicMatcher {
     private List<String> rightTableColumnNamesMatchRelevant;
 
     /**
-     * match options
+     * names of the match attributes in the left and right records, i.e. with table prefix
      */
-    private boolean suppressSecondBest = false;
+    private List<String> leftMatchAttributes;
+
+    private List<String> rightMatchAttributes;
+
+    /**
+     * match options: number of non exact matches reported per left record, the best ones; 0 for all
+     */
+    private int maxNonExactMatches = 0;
 
     private double threshold = THRESHOLD;
 
+    /**
+     * blocking stage, or null if all pairs are compared
+     */
+    private IBlockingStrategy blockingStrategy;
+
+    private BlockingMethod blockingMethod;
+
+    private final BlockingStatistics blockingStatistics = new BlockingStatistics();
+
+    /**
+     * if set, a match interrupted before continues after the last partition pair completed
+     */
+    private boolean resume = false;
+
+    /**
+     * last partition pair completed by a previous, interrupted run of the match, or -1 if starting from scratch
+     */
+    private long resumeAfterLeftPartition = -1;
+
+    private long resumeAfterRightPartition = -1;
+
+    /**
+     * number of records to match in the interrupted run, which must be the same to continue it
+     */
+    private long resumeLeftCount;
+
+    private long resumeRightCount;
+
+    /**
+     * number of threads scoring left records at the same time
+     */
+    private int parallelism = 1;
+
+    /**
+     * pool scoring left records during the fuzzy match, if parallelism is greater than 1
+     */
+    private ForkJoinPool scoringPool;
+
     /**
      * Invoked by {@link MatchInterpreter}
      *
@@ -148,6 +235,11 @@ public class MagicMatcher {
      */
     private void createMatchTable(final String tableName, final List<String> additionalAttributes)
     {
+        if (isResuming()) {
+            // keep the matches found before, and their variable
+            return;
+        }
+
         context.getDatabase().dropIfExistsViewOrTable(tableName);
         context.getDatabase().createOrReplaceVariable(tableName, "Matching " + leftVariable.getVariableName() + " on " + rightVariable.getVariableName(), "");
 
@@ -173,11 +265,6 @@ public class MagicMatcher {
         final String leftKeyConcatenation = TextUtils.serializeListWithDelimitator(matchArguments.getLeftAttributes(), "|| '_' ||", "replace(", ", ' ', '')");
         final String rightKeyConcatenation = TextUtils.serializeListWithDelimitator(matchArguments.getRightAttributes(), "|| '_' ||", "replace(", ", ' ', '')");
 
-        // create view containing all attributes + the concatenated combined key (left)
-        final String leftTempViewName = matchTemporaryIdentifier + "_left_all_plus_key";
-        temporaryTables.add(leftTempViewName);
-        final String leftTempKeyAttributeName = leftVariable.getVariableName() + "_match_key";
-        context.getDatabase().dropIfExistsViewOrTable(leftTempViewName);
         final String leftAttributesConcatenationWithAlias = TextUtils.serializeListWithDelimitator(leftTableColumnNamesMatchRelevant, ", ", "",
             " as " + leftVariable.getTableName() + "_<item>");
         final String rightAttributesConcatenationWithAlias = TextUtils.serializeListWithDelimitator(rightTableColumnNamesMatchRelevant, ", ", "",
@@ -187,37 +274,48 @@ public class MagicMatcher {
         final String rightAttributesConcatenation = TextUtils.serializeListWithDelimitator(rightTableColumnNamesMatchRelevant, ", ",
             rightVariable.getTableName() + "_", "");
 
+        // create table containing all attributes + the concatenated combined key (left), such that the key is computed
+        // once per record
+        long stepStart = System.currentTimeMillis();
+        final String leftTempViewName = matchTemporaryIdentifier + "_left_all_plus_key";
+        temporaryTables.add(leftTempViewName);
+        final String leftTempKeyAttributeName = leftVariable.getVariableName() + "_match_key";
+        context.getDatabase().dropIfExistsViewOrTable(leftTempViewName);
+
         String createLeftTempView = "CREATE TABLE " + leftTempViewName + " AS SELECT " + leftKeyConcatenation + " AS " + leftTempKeyAttributeName + ", "
-            + leftAttributesConcatenationWithAlias + " FROM " + leftVariable.getVariableName() + " WHERE " + leftKeyConcatenation + " <> ''";
+            + leftAttributesConcatenationWithAlias + " FROM " + leftVariable.getVariableName();
         final ProcessingResult pLeft = new DefaultCommandInterpreter(null, createLeftTempView, context).process();
 
         if (!(pLeft.getType() == ProcessingResult.ResultType.VIEW || pLeft.getType() == ProcessingResult.ResultType.TABLE)) {
             return new ProcessingResult(ProcessingResult.ResultType.FATAL_ERROR, "Trouble creating left hand table for exact match!");
         }
         context.getDatabase().createIndex(leftTempViewName, leftTempKeyAttributeName, leftTempViewName + "_" + leftTempKeyAttributeName + "_index");
+        stepStart = logStepTime("Left match keys", stepStart);
 
-        // create view containing all attributes + the concatenated combined key (right)
+        // create table containing all attributes + the concatenated combined key (right)
         final String rightTempViewName = matchTemporaryIdentifier + "_right_all_plus_key";
         temporaryTables.add(rightTempViewName);
         final String rightTempKeyAttributeName = rightVariable.getVariableName() + "_match_key";
         context.getDatabase().dropIfExistsViewOrTable(rightTempViewName);
         final String createRightTempView =
             "CREATE TABLE " + rightTempViewName + " AS SELECT " + rightKeyConcatenation + " AS " + rightTempKeyAttributeName + ", "
-                + rightAttributesConcatenationWithAlias + " FROM " + rightVariable.getVariableName() + " WHERE " + rightKeyConcatenation + " <> ''";
+                + rightAttributesConcatenationWithAlias + " FROM " + rightVariable.getVariableName();
         final ProcessingResult pRight = new DefaultCommandInterpreter(null, createRightTempView, context).process();
         if (!(pRight.getType() == ProcessingResult.ResultType.VIEW || pRight.getType() == ProcessingResult.ResultType.TABLE)) {
             return new ProcessingResult(ProcessingResult.ResultType.FATAL_ERROR, "Trouble creating right hand table for exact match!");
         }
         context.getDatabase().createIndex(rightTempViewName, rightTempKeyAttributeName, rightTempViewName + "_" + rightTempKeyAttributeName + "_index");
+        stepStart = logStepTime("Right match keys", stepStart);
 
-        // create inner join to see which ones are exactly matching
+        // create inner join to see which ones are exactly matching (records without key do not match)
         final String leftAlias = matchTemporaryIdentifier + "_left_alias";
         final String rightAlias = matchTemporaryIdentifier + "_right_alias";
 
         final String innerJoin =
             "CREATE TABLE " + getExactMatchesTableName() + " AS SELECT " + leftAttributesConcatenation + ", " + rightAttributesConcatenation + ", " +
                 leftTempKeyAttributeName + ", " + rightTempKeyAttributeName + " FROM " + leftTempViewName + " " + leftAlias + " INNER JOIN " + rightTempViewName
-                + " " + rightAlias + " ON " + leftAlias + "." + leftTempKeyAttributeName + "=" + rightAlias + "." + rightTempKeyAttributeName;
+                + " " + rightAlias + " ON " + leftAlias + "." + leftTempKeyAttributeName + "=" + rightAlias + "." + rightTempKeyAttributeName
+                + " WHERE " + leftAlias + "." + leftTempKeyAttributeName + " <> ''";
         final ProcessingResult pJoin = new ScriptProcessor().processScript(getExactMatchesTableName() + ":=" + innerJoin, null, null);
         if (!(pJoin.getType() == ProcessingResult.ResultType.TABLE || pJoin.getType() == ProcessingResult.ResultType.VIEW)) {
             return new ProcessingResult(ProcessingResult.ResultType.FATAL_ERROR, "Trouble creating inner join for exact match!");
@@ -227,23 +325,32 @@ public class MagicMatcher {
         context.getLog().log("Join Result in : " + joinResultTable);
 
         context.getLog().log("Exact matches: " + context.getDatabase().count(joinResultTable) + " of " + context.getDatabase().count(leftVariable.getTableName()));
+        stepStart = logStepTime("Exact matches", stepStart);
 
+        // reduced sets: the records without exact match (anti-join on the indexed keys), or all records. Records with
+        // an empty key are kept, records where the key is null (i.e., a match attribute is null) are not
         context.getDatabase().dropIfExistsViewOrTable(matchTemporaryIdentifier + "_reduced_left");
         context.getDatabase().dropIfExistsViewOrTable(matchTemporaryIdentifier + "_reduced_right");
         final String reducedLeftTableName = matchTemporaryIdentifier + "_reduced_left";
         temporaryTables.add(reducedLeftTableName);
         String reducedLeftSQL =
-            "CREATE TABLE " + reducedLeftTableName + " AS SELECT " + leftAttributesConcatenationWithAlias + " FROM " + leftVariable.getTableName();
+            "CREATE TABLE " + reducedLeftTableName + " AS SELECT " + TextUtils.serializeListWithDelimitator(leftTableColumnNamesMatchRelevant, ", ",
+                leftAlias + "." + leftVariable.getTableName() + "_", "") + " FROM " + leftTempViewName + " " + leftAlias;
         if (!hungryLeft) {
-            reducedLeftSQL += " WHERE " + leftKeyConcatenation + " NOT IN (SELECT " + leftTempKeyAttributeName + " FROM " + getExactMatchesTableName() + ")";
+            reducedLeftSQL += " LEFT JOIN " + rightTempViewName + " " + rightAlias + " ON " + rightAlias + "." + rightTempKeyAttributeName + " = " + leftAlias + "."
+                + leftTempKeyAttributeName + " AND " + rightAlias + "." + rightTempKeyAttributeName + " <> ''"
+                + " WHERE " + leftAlias + "." + leftTempKeyAttributeName + " IS NOT NULL AND " + rightAlias + "." + rightTempKeyAttributeName + " IS NULL";
         }
         final ProcessingResult reducedLeftSet = new DefaultCommandInterpreter(null, reducedLeftSQL, context).process();
         final String reducedRightTableName = matchTemporaryIdentifier + "_reduced_right";
         temporaryTables.add(reducedRightTableName);
         String reducedRightSQL =
-            "CREATE TABLE " + reducedRightTableName + " AS SELECT " + rightAttributesConcatenationWithAlias + " FROM " + rightVariable.getTableName();
+            "CREATE TABLE " + reducedRightTableName + " AS SELECT " + TextUtils.serializeListWithDelimitator(rightTableColumnNamesMatchRelevant, ", ",
+                rightAlias + "." + rightVariable.getTableName() + "_", "") + " FROM " + rightTempViewName + " " + rightAlias;
         if (greedyLeft) {
-            reducedRightSQL += " WHERE " + rightKeyConcatenation + " NOT IN (SELECT " + rightTempKeyAttributeName + " FROM " + getExactMatchesTableName() + ")";
+            reducedRightSQL += " LEFT JOIN " + leftTempViewName + " " + leftAlias + " ON " + leftAlias + "." + leftTempKeyAttributeName + " = " + rightAlias + "."
+                + rightTempKeyAttributeName + " AND " + leftAlias + "." + leftTempKeyAttributeName + " <> ''"
+                + " WHERE " + rightAlias + "." + rightTempKeyAttributeName + " IS NOT NULL AND " + leftAlias + "." + leftTempKeyAttributeName + " IS NULL";
         }
         final ProcessingResult reducedRightSet = new DefaultCommandInterpreter(null, reducedRightSQL, context).process();
         if (reducedLeftSet.getType() == ProcessingResult.ResultType.TABLE && reducedRightSet.getType() == ProcessingResult.ResultType.TABLE) {
@@ -254,10 +361,25 @@ public class MagicMatcher {
             reducedRightSetName = null;
             context.getLog().err("Error in creating reduced sets in exact matching!");
         }
+        logStepTime("Reduced sets", stepStart);
 
         return new ProcessingResult(ProcessingResult.ResultType.VIEW, joinResultTable);
     }
 
+    /**
+     * logs how long a step of the match took
+     *
+     * @param step      name of the step
+     * @param stepStart time the step started, in milliseconds
+     * @return time the step ended, i.e. the next step starts
+     */
+    private long logStepTime(final String step, final long stepStart)
+    {
+        final long stepEnd = System.currentTimeMillis();
+        context.getLog().info(step + " took " + (stepEnd - stepStart) + " ms.");
+        return stepEnd;
+    }
+
     /**
      * Check if two records are equal, but without case-sensitive
      *
@@ -282,11 +404,14 @@ public class MagicMatcher {
     }
 
     /**
-     * Insert records to the database and clear buffer.
+     * Insert records to the database and clear buffer. A failed insert fails the match of the current partition pair,
+     * see match(allLeft, allRight)
      */
     private void flushMatchBuffer()
     {
-        context.getDatabase().insert(getFuzzyMatchesTableName(), matchBuffer);
+        if (!context.getDatabase().insert(getFuzzyMatchesTableName(), matchColumnNames, matchBuffer)) {
+            matchWriteFailed = true;
+        }
 
         // empty buffer
         matchBuffer = new ArrayList<>();
@@ -298,8 +423,6 @@ public class MagicMatcher {
 
     private ProcessingResult fuzzyMatch()
     {
-        long lastRecordStartedTimestamp = System.currentTimeMillis();
-
         final Partitioning leftPartitioning = new Partitioning(context.getDatabase().count(reducedLeftSetName), PARTITION_SIZE);
         final Partitioning rightPartitioning = new Partitioning(context.getDatabase().count(reducedRightSetName), PARTITION_SIZE);
 
@@ -310,10 +433,72 @@ public class MagicMatcher {
         context.getLog().info("Left set will be divided into " + (leftPartitioning.countPartitions()) + " partitions to avoid memory problems.");
         context.getLog().info("Right set will be divided into " + (rightPartitioning.countPartitions()) + " partitions to avoid memory problems.");
 
+        if (isResuming() && (resumeLeftCount != leftPartitioning.countElements() || resumeRightCount != rightPartitioning.countElements())) {
+            context.getLog().warn("Cannot resume, the tables to match have changed. Starting from scratch.");
+            resumeAfterLeftPartition = -1;
+            resumeAfterRightPartition = -1;
+            context.getDatabase().prepare("DELETE FROM " + getFuzzyMatchesTableName());
+        }
+        if (isResuming()) {
+            context.getLog().info("Resuming after left partition " + (resumeAfterLeftPartition + 1) + " / right partition " + (resumeAfterRightPartition + 1) + ".");
+        } else {
+            createProgressTable(leftPartitioning.countElements(), rightPartitioning.countElements());
+        }
+
+        // partitions are read by row id, see KeysetPartitioning; the Partitionings above are used for the status only
+        final Iterator<List<Record>> leftPartitions = new KeysetPartitioning(context.getDatabase(), reducedLeftSetName, PARTITION_SIZE).iterator();
+        final KeysetPartitioning rightKeysetPartitioning = new KeysetPartitioning(context.getDatabase(), reducedRightSetName, PARTITION_SIZE);
+
+        if (parallelism > 1) {
+            context.getLog().info("Scoring with " + parallelism + " threads.");
+            scoringPool = new ForkJoinPool(parallelism);
+        }
+        final boolean completed;
+        try {
+            completed = fuzzyMatch(leftPartitioning, rightPartitioning, leftPartitions, rightKeysetPartitioning);
+        } finally {
+            if (null != scoringPool) {
+                scoringPool.shutdownNow();
+                scoringPool = null;
+            }
+        }
+        if (!completed) {
+            // the progress table is kept, such that RESUME starts again with the partition pair that failed
+            return new ProcessingResult(ProcessingResult.ResultType.FATAL_ERROR, "Trouble storing fuzzy matches, use RESUME to continue!");
+        }
+
+        if (null != blockingStrategy) {
+            context.getLog().info("Blocking by " + blockingMethod.getMethodName() + ": " + blockingStatistics);
+        }
+
+        // completed, nothing to resume any more
+        context.getDatabase().dropIfExistsTable(getProgressTableName());
+        return new ProcessingResult(ProcessingResult.ResultType.TABLE, getFuzzyMatchesTableName());
+    }
+
+    /**
+     * matches all left partitions against all right partitions
+     *
+     * @return false if the matches of a partition pair could not be stored, in which case matching is aborted
+     */
+    private boolean fuzzyMatch(final Partitioning leftPartitioning, final Partitioning rightPartitioning, final Iterator<List<Record>> leftPartitions,
+                            final KeysetPartitioning rightKeysetPartitioning)
+    {
+        long lastRecordStartedTimestamp = System.currentTimeMillis();
+
         for (final Partition leftP : leftPartitioning) {
             // get left partition
+            if (!leftPartitions.hasNext()) {
+                break;
+            }
+            final List<Record> left = leftPartitions.next();
+            if (leftP.getNumber() < resumeAfterLeftPartition) {
+                // completed before
+                continue;
+            }
 
             // process right partitions against this left one
+            final Iterator<List<Record>> rightPartitions = rightKeysetPartitioning.iterator();
             for (final Partition rightP : rightPartitioning) {
 
                 // update performance calculation
@@ -337,18 +522,98 @@ public class MagicMatcher {
 
                 context.getLog().info(statusString);
 
-                final List<Record> left = context.getDatabase().getAllRecordsFromTableOrView(reducedLeftSetName, leftP.getFirstRecord(), leftP.getLength(), null, null);
-                final List<Record> right = context.getDatabase().getAllRecordsFromTableOrView(reducedRightSetName, rightP.getFirstRecord(), rightP.getLength(), null, null);
+                if (!rightPartitions.hasNext()) {
+                    break;
+                }
+                final List<Record> right = rightPartitions.next();
+                if (leftP.getNumber() == resumeAfterLeftPartition && rightP.getNumber() <= resumeAfterRightPartition) {
+                    // completed before
+                    continue;
+                }
 
-                if (null != left && null != right) {
-                    match(left, right);
+                // the matches of a partition pair are stored together with the progress, or not at all
+                context.getDatabase().beginTransaction();
+                boolean stored = false;
+                try {
+                    stored = match(left, right) && saveProgress(leftP.getNumber(), rightP.getNumber());
+                } finally {
+                    if (stored) {
+                        context.getDatabase().commitTransaction();
+                    } else {
+                        matchBuffer = null;
+                        context.getDatabase().rollbackTransaction();
+                    }
+                }
+                if (!stored) {
+                    context.getLog().err(
+                        "Could not store the matches of left partition " + (leftP.getNumber() + 1) + " / right partition " + (rightP.getNumber() + 1)
+                            + ", matching aborted.");
+                    return false;
                 }
             }
         }
-        return new ProcessingResult(ProcessingResult.ResultType.TABLE, getFuzzyMatchesTableName());
+        return true;
     }
 
 
+    private String getProgressTableName()
+    {
+        return targetTableName + "_match_progress";
+    }
+
+    /**
+     * @return true if continuing an interrupted match
+     */
+    private boolean isResuming()
+    {
+        return resumeAfterLeftPartition >= 0;
+    }
+
+    /**
+     * reads the last partition pair completed by an interrupted match, if its progress and matches are still there
+     */
+    private void readProgress()
+    {
+        if (!context.getDatabase().existsTable(getProgressTableName()) || !context.getDatabase().existsTable(getFuzzyMatchesTableName())
+            || null == context.getDatabase().getVariable(getFuzzyMatchesTableName())) {
+            context.getLog().info("Nothing to resume, starting from scratch.");
+            return;
+        }
+
+        final List<Record> progress = context.getDatabase().prepare(
+            "SELECT left_partition, right_partition, left_count, right_count FROM " + getProgressTableName());
+        if (null == progress || progress.isEmpty() || null == progress.get(0).getValue("left_partition").getValue()) {
+            context.getLog().info("Nothing to resume, starting from scratch.");
+            return;
+        }
+
+        final Record lastCompleted = progress.get(0);
+        resumeAfterLeftPartition = Long.parseLong(lastCompleted.getValue("left_partition").getValue().toString());
+        resumeAfterRightPartition = Long.parseLong(lastCompleted.getValue("right_partition").getValue().toString());
+        resumeLeftCount = Long.parseLong(lastCompleted.getValue("left_count").getValue().toString());
+        resumeRightCount = Long.parseLong(lastCompleted.getValue("right_count").getValue().toString());
+    }
+
+    /**
+     * creates the table where the last partition pair completed is stored, such that the match can be resumed
+     */
+    private void createProgressTable(final long leftCount, final long rightCount)
+    {
+        context.getDatabase().dropIfExistsTable(getProgressTableName());
+        context.getDatabase().prepare(
+            "CREATE TABLE " + getProgressTableName() + " (left_partition INTEGER, right_partition INTEGER, left_count INTEGER, right_count INTEGER)");
+        context.getDatabase().prepare("INSERT INTO " + getProgressTableName() + " VALUES (NULL, NULL, " + leftCount + ", " + rightCount + ")");
+    }
+
+    /**
+     * @return false if the progress could not be stored
+     */
+    private boolean saveProgress(final long leftPartition, final long rightPartition)
+    {
+        return null != context.getDatabase().prepare(
+            "UPDATE " + getProgressTableName() + " SET left_partition = " + leftPartition + ", right_partition = " + rightPartition);
+    }
+
     private String getExactMatchesTableName()
     {
         return targetTableName + "_exact_matches";
@@ -364,49 +629,118 @@ public class MagicMatcher {
     {
         threshold = THRESHOLD;
         matchTemporaryIdentifier = targetTableName;
+        leftMatchAttributes = new ArrayList<>();
+        for (final String leftAttribute : matchArguments.getLeftAttributes()) {
+            leftMatchAttributes.add(leftTableAttrPrefix + leftAttribute);
+        }
+        rightMatchAttributes = new ArrayList<>();
+        for (final String rightAttribute : matchArguments.getRightAttributes()) {
+            rightMatchAttributes.add(rightTableAttrPrefix + rightAttribute);
+        }
+        initOptions();
+        if (resume) {
+            readProgress();
+        }
         initialized = prepareResultsTable();
     }
 
+    private void limitNonExactMatches(final int k)
+    {
+        maxNonExactMatches = maxNonExactMatches == 0 ? k : Math.min(maxNonExactMatches, k);
+    }
+
+    /**
+     * reads the options which apply to the match as a whole
+     */
+    private void initOptions()
+    {
+        for (final MatchOption matchOption : matchArguments.getOptions()) {
+            final Hashtable<String, Object> arguments = matchOption.getArguments();
+
+            // SUPPRESSSECONDBESTMATCHES
+            if (matchOption.getType() == MatchOption.OPT_SUPPRESSSECONDBEST) {
+                limitNonExactMatches(1);
+            }
+
+            // TOP
+            if (matchOption.getType() == MatchOption.OPT_TOP) {
+                limitNonExactMatches((Integer) arguments.get("k"));
+            }
+
+            // THRESHOLD
+            if (matchOption.getType() == MatchOption.OPT_THRESHOLD) {
+                if (arguments == null) {
+                    context.getLog().warn("THRESHOLD without arguments!");
+                } else if (null != arguments.get("threshold")) {
+                    threshold = new Double(arguments.get("threshold").toString());
+                }
+            }
+
+            // BLOCKING
+            if (matchOption.getType() == MatchOption.OPT_BLOCKING) {
+                blockingMethod = (BlockingMethod) arguments.get("method");
+                blockingStrategy = blockingMethod.createStrategy((Integer) arguments.get("parameter"));
+            }
+
+            // RESUME
+            if (matchOption.getType() == MatchOption.OPT_RESUME) {
+                resume = true;
+            }
+
+            // PARALLEL
+            if (matchOption.getType() == MatchOption.OPT_PARALLEL) {
+                parallelism = null == arguments ? Runtime.getRuntime().availableProcessors() : (Integer) arguments.get("threads");
+            }
+        }
+    }
+
     /**
      * Prepare (calculate the values for different matching strategies) records for fuzzy matching table
      * and call a function that will take care of saving them to a right table.
      *
      * @param allLeft  all records from left table
      * @param allRight all records from right table
+     * @return false if some of the matches could not be stored
      */
-    private void match(final List<Record> allLeft, final List<Record> allRight)
+    private boolean match(final List<Record> allLeft, final List<Record> allRight)
     {
         if (!initialized) {
-            return;
+            return true;
         }
+        matchWriteFailed = false;
 
-        for (final Record leftRecord : allLeft) {
-
-            final MatchSet matches = new MatchSet();
+        // prepare the right records once for all left records
+        final List<MatchKey> rightKeys = new ArrayList<>(allRight.size());
+        for (final Record rightRecord : allRight) {
+            rightKeys.add(createRightKey(rightRecord));
+        }
 
-            for (final Record rightRecord : allRight) {
-                matchRightRecord(leftRecord, matches, rightRecord);
+        if (null != blockingStrategy) {
+            final List<String> rightScoreKeys = new ArrayList<>(rightKeys.size());
+            for (final MatchKey rightKey : rightKeys) {
+                rightScoreKeys.add(rightKey.getScoreKey());
             }
+            blockingStrategy.index(rightScoreKeys);
+        }
 
-            boolean hadExactMatches = false;
-            for (final Match exactMatch : matches.getExactMatches()) {
-                hadExactMatches = true;
-                writeMatchTable(exactMatch);
+        if (null == scoringPool) {
+            for (int i = 0; i < allLeft.size(); i++) {
+                for (final Match match : matchLeftRecord(allLeft.get(i), rightKeys, i < RECALL_SAMPLE_SIZE)) {
+                    writeMatchTable(match);
+                }
             }
-
-            if (!hadExactMatches) {
-                if (suppressSecondBest) {
-                    // write best, if any:
-                    if (matches.getBestNonExactMatch() != null) {
-                        writeMatchTable(matches.getBestNonExactMatch());
-                    }
-                } else {
-                    // write all
-                    for (final Match nonExactMatch : matches.getNonExactMatches(threshold)) {
-                        // record as match (exact matches are all reported, inexact
-                        // matches
-                        writeMatchTable(nonExactMatch);
-                    }
+        } else {
+            // score chunks of left records in parallel, but write their matches in the order of the left records
+            final Deque<Future<List<Match>>> chunks = new ArrayDeque<>();
+            int nextChunkStart = 0;
+            while (nextChunkStart < allLeft.size() || !chunks.isEmpty()) {
+                while (nextChunkStart < allLeft.size() && chunks.size() < parallelism * CHUNKS_AHEAD_PER_THREAD) {
+                    final int chunkEnd = Math.min(nextChunkStart + LEFT_CHUNK_SIZE, allLeft.size());
+                    chunks.add(scoringPool.submit(new LeftChunkMatcher(allLeft, nextChunkStart, chunkEnd, rightKeys)));
+                    nextChunkStart = chunkEnd;
+                }
+                for (final Match match : takeChunk(chunks)) {
+                    writeMatchTable(match);
                 }
             }
         }
@@ -415,160 +749,212 @@ public class MagicMatcher {
         if (matchBuffer != null) {
             flushMatchBuffer();
         }
+        return !matchWriteFailed;
     }
 
     /**
-     * Uses different strategies to compare two records and calculate the match score
+     * waits until the first chunk of left records is scored
      *
-     * @param leftRecord  record from the left table
-     * @param matches     set of non exact matches
-     * @param rightRecord record from the right table
+     * @return matches of the chunk to be written
      */
-    private void matchRightRecord(Record leftRecord, MatchSet matches, Record rightRecord)
+    private List<Match> takeChunk(final Deque<Future<List<Match>>> chunks)
     {
-        final Match thisMatch = new Match(leftRecord, rightRecord);
-        matches.addMatch(thisMatch);
-
-        // exact match
-        boolean first = true;
-        final StringBuilder leftCombinedKey = new StringBuilder();
-        final StringBuilder rightCombinedKey = new StringBuilder();
-        for (int i = 0; i < matchArguments.getLeftAttributes().size(); i++) {
-
-            final String checkLeftAttribute = leftTableAttrPrefix + matchArguments.getLeftAttributes().get(i);
+        try {
+            return chunks.poll().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while matching", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
 
-            // if same number of left and right attributes, test exact match:
-            if (matchArguments.getLeftAttributes().size() == matchArguments.getRightAttributes().size()) {
+    /**
+     * scores the left record against the right records. Called from several threads at the same time if matching
+     * in parallel, so it must not change the state of the matcher
+     *
+     * @param sampleRecall if true and blocking is used, the left record is also compared with all right records, to
+     *                     estimate the recall of the blocking stage
+     * @return the matches of the left record to be written: the exact matches, if any, otherwise the (best) matches
+     * above the threshold
+     */
+    private List<Match> matchLeftRecord(final Record leftRecord, final List<MatchKey> rightKeys, final boolean sampleRecall)
+    {
+        final MatchCollector matches = new MatchCollector(maxNonExactMatches, threshold);
+        final MatchKey leftKey = new MatchKey(leftRecord, leftMatchAttributes, false, rightMatchAttributes.size());
 
-                String againstRightAttribute = rightTableAttrPrefix + matchArguments.getRightAttributes().get(i);
-                thisMatch.setPartialExactMatch(exactAttributeNameMap.get(checkLeftAttribute),
-                    ((String) leftRecord.getValue(checkLeftAttribute).getValue()).trim()
-                        .equals(((String) rightRecord.getValue(againstRightAttribute).getValue()).trim()));
+        if (null == blockingStrategy) {
+            for (final MatchKey rightKey : rightKeys) {
+                matchRightRecord(leftKey, rightKey, matches);
             }
+        } else {
+            // only compare with the candidates of the blocking stage
+            final int[] candidates = blockingStrategy.getCandidates(leftKey.getScoreKey());
+            for (final int candidate : candidates) {
+                matchRightRecord(leftKey, rightKeys.get(candidate), matches);
+            }
+            blockingStatistics.addPairs(rightKeys.size(), candidates.length);
 
-            if (first) {
-                first = false;
-            } else {
-                leftCombinedKey.append("*");
+            if (sampleRecall) {
+                sampleRecall(leftKey, rightKeys, candidates);
             }
+        }
 
-            leftCombinedKey.append(((String) leftRecord.getValue(checkLeftAttribute).getValue()).trim());
+        return matches.getMatches();
+    }
+
+    /**
+     * compares the left record with all right records, as if there was no blocking stage, to count how many of the
+     * matches reported that way (the exact matches if any, otherwise the best non exact matches above the threshold)
+     * are among the candidates of the blocking stage. Without THRESHOLD, TOP or SUPPRESSSECONDBEST, all right records
+     * would be reported, so the recall is not estimated
+     *
+     * @param candidates positions of the right records compared because of the blocking stage, ascending
+     */
+    private void sampleRecall(final MatchKey leftKey, final List<MatchKey> rightKeys, final int[] candidates)
+    {
+        final MatchCollector unblocked = new MatchCollector(maxNonExactMatches, threshold);
+        if (!unblocked.isSelective()) {
+            return;
+        }
+        for (final MatchKey rightKey : rightKeys) {
+            matchRightRecord(leftKey, rightKey, unblocked);
         }
 
-        first = true;
-        for (int i = 0; i < matchArguments.getRightAttributes().size(); i++) {
-            final String againstRightAttribute = rightTableAttrPrefix + matchArguments.getRightAttributes().get(i);
-            rightCombinedKey.append(((String) rightRecord.getValue(againstRightAttribute).getValue()).trim());
-            rightCombinedKey.append("*");
-            if (first) {
-                first = false;
-            } else {
-                leftCombinedKey.append("*");
-                rightCombinedKey.append("*");
+        final Set<Record> candidateRecords = Collections.newSetFromMap(new IdentityHashMap<Record, Boolean>());
+        for (final int candidate : candidates) {
+            candidateRecords.add(rightKeys.get(candidate).getRecord());
+        }
+        final List<Match> matches = unblocked.getMatches();
+        long found = 0;
+        for (final Match match : matches) {
+            if (candidateRecords.contains(match.getRightRecord())) {
+                found++;
             }
         }
+        blockingStatistics.addRecallSample(matches.size(), found);
+    }
 
-        thisMatch.setLeftKey(leftCombinedKey.toString());
-        thisMatch.setRightKey(rightCombinedKey.toString());
-
-        if (!thisMatch.isExact()) {
-            // check imprecise matches
-            final JaroStrategy jaro = new JaroStrategy();
-            final JaroWinklerStrategy jaroWinkler = new JaroWinklerStrategy();
-            final DiceCoefficientStrategy diceCo = new DiceCoefficientStrategy();
+    private MatchKey createRightKey(final Record rightRecord)
+    {
+        return new MatchKey(rightRecord, rightMatchAttributes, true, rightMatchAttributes.size());
+    }
 
-            // left key
-            final StringBuilder leftKey = new StringBuilder();
-            first = true;
-            for (String leftKeyComponent : matchArguments.getLeftAttributes()) {
-                if (first) {
-                    first = false;
-                } else {
-                    leftKey.append("*");
-                }
+    /**
+     * Uses different strategies to compare two records and calculate the match score. The match is only created and
+     * added to the collector if the collector keeps it.
+     *
+     * @param leftKey  match attributes of the record from the left table
+     * @param rightKey match attributes of the record from the right table
+     * @param matches  matches of the left record so far
+     */
+    private void matchRightRecord(MatchKey leftKey, MatchKey rightKey, MatchCollector matches)
+    {
+        if (leftKey.isExactMatch(rightKey)) {
+            matches.addExactMatch(createMatch(leftKey, rightKey));
+            return;
+        }
+        if (matches.hasExactMatches()) {
+            // non exact matches are not reported anyway
+            return;
+        }
 
-                leftKey.append(leftRecord.getValue(leftTableAttrPrefix + leftKeyComponent).getValue());
+        // check imprecise matches
+        final int commonPrefix = leftKey.commonPrefixLength(rightKey);
+
+        // skip the pair if even the upper bounds of the scores are not good enough, then compute the scores one by one
+        // as long as the pair may still be kept
+        final boolean selective = matches.isSelective();
+        double jaroBound = 1;
+        double jaroWinklerBound = 1;
+        if (selective) {
+            jaroBound = ScoreBounds.jaro(leftKey.getLowerCaseScoreKey().length, rightKey.getLowerCaseScoreKey().length);
+            jaroWinklerBound = StringSimilarity.jaroWinkler(jaroBound, commonPrefix);
+            if (!matches.accepts(1, jaroBound, jaroWinklerBound)
+                || !matches.accepts(ScoreBounds.dice(leftKey.countBigrams(), rightKey.countBigrams()), jaroBound, jaroWinklerBound)) {
+                return;
             }
+        }
+
+        final double diceScore = leftKey.dice(rightKey);
+        if (selective && !matches.accepts(diceScore, jaroBound, jaroWinklerBound)) {
+            return;
+        }
+        final double jaroScore = leftKey.jaro(rightKey);
+        final double jaroWinklerScore = StringSimilarity.jaroWinkler(jaroScore, commonPrefix);
+        if (!matches.accepts(diceScore, jaroScore, jaroWinklerScore)) {
+            return;
+        }
 
-            // right key
-            final StringBuilder rightKey = new StringBuilder();
-            first = true;
-            for (String rightKeyComponent : matchArguments.getRightAttributes()) {
-                if (first) {
-                    first = false;
-                } else {
-                    rightKey.append("*");
+        final Match thisMatch = createMatch(leftKey, rightKey);
+        thisMatch.setJaroScore(jaroScore);
+        thisMatch.setJaroWinklerScore(jaroWinklerScore);
+        thisMatch.setDiceScore(diceScore);
+
+        // process WITH clauses
+        for (final MatchOption matchOption : matchArguments.getOptions()) {
+
+            final Hashtable<String, Object> arguments = matchOption.getArguments();
+            // LEGASTODETECT
+            if (matchOption.getType() == MatchOption.OPT_LEGASTODETECT) {
+                if(arguments == null) {
+                    context.getLog().warn("LEGASTODETECT without arguments!");
+                    break;
                 }
 
-                rightKey.append(rightRecord.getValue(rightTableAttrPrefix + rightKeyComponent).getValue());
-            }
+                final Iterator<String> it = arguments.keySet().iterator();
+                final String firstSwapAttribute = it.next();
+                final String secondSwapAttribute = it.next();
 
-            thisMatch.setJaroScore(jaro.score(leftKey.toString(), rightKey.toString()));
-
-            thisMatch.setJaroWinklerScore(jaroWinkler.score(leftKey.toString(), rightKey.toString()));
-
-            thisMatch.setDiceScore(diceCo.score(leftKey.toString(), rightKey.toString()));
-
-            // process WITH clauses
-            for (final MatchOption matchOption : matchArguments.getOptions()) {
-
-                final Hashtable<String, Object> arguments = matchOption.getArguments();
-                    // LEGASTODETECT
-                    if (matchOption.getType() == MatchOption.OPT_LEGASTODETECT) {
-                        if(arguments == null) {
-                            context.getLog().warn("LEGASTODETECT without arguments!");
-                            return;
-                        }
-
-                        final Iterator<String> it = arguments.keySet().iterator();
-                        final String firstSwapAttribute = it.next();
-                        final String secondSwapAttribute = it.next();
-
-                        // generate alternative left key, where the
-                        // legasthenic keys are swapped:
-                        final StringBuilder alternativeLeftKey = new StringBuilder();
-                        first = true;
-                        for (final String leftKeyComponent : matchArguments.getLeftAttributes()) {
-                            if (first) {
-                                first = false;
-                            } else {
-                                alternativeLeftKey.append("*");
-                            }
-
-                            if (leftKeyComponent.equals(firstSwapAttribute)) {
-                                alternativeLeftKey.append(leftRecord.getValue(secondSwapAttribute).getValue());
-                            } else if (leftKeyComponent.equals(secondSwapAttribute)) {
-                                alternativeLeftKey.append(leftRecord.getValue(firstSwapAttribute).getValue());
-                            } else {
-                                alternativeLeftKey.append(leftRecord.getValue(leftKeyComponent).getValue());
-                            }
-                        }
-
-                        if (alternativeLeftKey.toString().trim().equals(rightKey.toString().trim())) {
-                            thisMatch.addLegasthenicMatch(this.matchOptionAttributeNameMap.get(matchOption));
-                        }
+                // generate alternative left key, where the
+                // legasthenic keys are swapped:
+                final Record leftRecord = leftKey.getRecord();
+                final StringBuilder alternativeLeftKey = new StringBuilder();
+                boolean first = true;
+                for (final String leftKeyComponent : matchArguments.getLeftAttributes()) {
+                    if (first) {
+                        first = false;
+                    } else {
+                        alternativeLeftKey.append("*");
                     }
 
-                    // SUPPRESSSECONDBESTMATCHES
-                    if (matchOption.getType() == MatchOption.OPT_SUPPRESSSECONDBEST) {
-                        suppressSecondBest = true;
+                    if (leftKeyComponent.equals(firstSwapAttribute)) {
+                        alternativeLeftKey.append(leftRecord.getValue(secondSwapAttribute).getValue());
+                    } else if (leftKeyComponent.equals(secondSwapAttribute)) {
+                        alternativeLeftKey.append(leftRecord.getValue(firstSwapAttribute).getValue());
+                    } else {
+                        alternativeLeftKey.append(leftRecord.getValue(leftKeyComponent).getValue());
                     }
+                }
 
-                    // THRESHOLD
-                    if (matchOption.getType() == MatchOption.OPT_THRESHOLD) {
-                        if(arguments == null) {
-                            context.getLog().warn("THRESHOLD without arguments!");
-                            return;
-                        }
-
-                        final Object thresholdObj = arguments.get("threshold");
-                        if (null != thresholdObj) {
-                            threshold = new Double(thresholdObj.toString());
-                        }
-                    }
+                if (alternativeLeftKey.toString().trim().equals(rightKey.getScoreKey().trim())) {
+                    thisMatch.addLegasthenicMatch(this.matchOptionAttributeNameMap.get(matchOption));
+                }
+            }
+        }
+
+        matches.addNonExactMatch(thisMatch);
+    }
+
+    /**
+     * @return match of the two records with the match keys and the exact matches of the single attributes, but without
+     * scores
+     */
+    private Match createMatch(final MatchKey leftKey, final MatchKey rightKey)
+    {
+        final Match thisMatch = new Match(leftKey.getRecord(), rightKey.getRecord());
 
+        // if same number of left and right attributes, test exact match:
+        if (leftMatchAttributes.size() == rightMatchAttributes.size()) {
+            for (int i = 0; i < leftMatchAttributes.size(); i++) {
+                thisMatch.setPartialExactMatch(exactAttributeNameMap.get(leftMatchAttributes.get(i)),
+                    leftKey.getTrimmedValues()[i].equals(rightKey.getTrimmedValues()[i]));
             }
         }
+
+        thisMatch.setLeftKey(leftKey.getCombinedKey());
+        thisMatch.setRightKey(rightKey.getCombinedKey());
+        return thisMatch;
     }
 
     /**
@@ -741,63 +1127,137 @@ public class MagicMatcher {
      */
     private void writeMatchTable(final Match match)
     {
-        final Record record = new Record();
+        if (null == matchColumnNames) {
+            prepareMatchColumns(match);
+        }
 
+        final Object[] row = new Object[matchColumnNames.size()];
+        int column = 0;
         for (final Value leftValue : match.getLeftRecord()) {
-            final String newKey = context.getDatabase().sanitizeName(leftValue.getAttributeName());
-            record.put(newKey, leftValue.getValue());
+            row[column++] = leftValue.getValue();
         }
         for (final Value rightValue : match.getRightRecord()) {
-            final String newKey = context.getDatabase().sanitizeName(rightValue.getAttributeName());
-            record.put(newKey, rightValue.getValue());
+            row[column++] = rightValue.getValue();
         }
 
         // match keys (if not there already)
-        if (!record.hasAttribute(leftKeyAttributeNameTarget)) {
-            record.put(leftKeyAttributeNameTarget, match.getLeftKey());
+        if (writeLeftKey) {
+            row[column++] = match.getLeftKey();
         }
-
-        if (!record.hasAttribute(rightKeyAttributeNameTarget)) {
-            record.put(rightKeyAttributeNameTarget, match.getRightKey());
+        if (writeRightKey) {
+            row[column++] = match.getRightKey();
         }
 
         // partial exact matches
-        for (final String partialExactKey : match.getPartialExactKeys()) {
-            record.put(partialExactKey, match.isPartialExactMatch(partialExactKey) ? "yes" : "no");
+        for (final String partialExactKey : partialExactColumnNames) {
+            row[column++] = match.isPartialExactMatch(partialExactKey) ? "yes" : "no";
         }
 
         // inexact matches
-        record.put("match_exact", match.isExact() ? "yes" : "no");
-        record.put("match_jaro", match.getJaroScore());
-        record.put("match_jarowinkler", match.getJaroWinklerScore());
-        record.put("match_dice", match.getDiceScore());
-
-        // legasthenic
-        for (final MatchOption mo : matchArguments.getOptions()) {
-            if (mo.getType() == MatchOption.OPT_LEGASTODETECT) {
-                final String legaAttr = matchOptionAttributeNameMap.get(mo);
-                if (match.getLegasthenicMatches().get(legaAttr) != null) {
-                    // redundant but safer if decided to do the Boolean hash
-                    // better in match in future (currently, we only have TRUE
-                    // entries there)
-                    if (match.getLegasthenicMatches().get(legaAttr)) {
-                        record.put(legaAttr, "yes");
-                    }
-                } else {
-                    record.put(legaAttr, "no");
-                }
-            }
+        row[column++] = match.isExact() ? "yes" : "no";
+        row[column++] = match.getJaroScore();
+        row[column++] = match.getJaroWinklerScore();
+        row[column++] = match.getDiceScore();
+
+        // legasthenic (there are only TRUE entries)
+        for (final String legaAttr : legastColumnNames) {
+            row[column++] = Boolean.TRUE.equals(match.getLegasthenicMatches().get(legaAttr)) ? "yes" : "no";
         }
 
-        // add record to buffer (init if necessary)
+        // add row to buffer (init if necessary)
         if (matchBuffer == null) {
             matchBuffer = new ArrayList<>();
         }
-        matchBuffer.add(record);
+        matchBuffer.add(row);
 
         // empty buffer from time to time
         if (matchBuffer.size() > MAX_MATCH_BUFFER_RECORDS) {
             flushMatchBuffer();
         }
     }
+
+    /**
+     * Determines the columns of the match table the matches are written to, such that the attribute names are
+     * sanitized once per match instead of once per match written. All left (right) records have the same attributes,
+     * so the first match tells them.
+     *
+     * @param match first match written
+     */
+    private void prepareMatchColumns(final Match match)
+    {
+        final List<String> columnNames = new ArrayList<>();
+        final Set<String> lowerCaseColumnNames = new HashSet<>();
+        for (final Value leftValue : match.getLeftRecord()) {
+            columnNames.add(context.getDatabase().sanitizeName(leftValue.getAttributeName()));
+            lowerCaseColumnNames.add(leftValue.getAttributeName().toLowerCase());
+        }
+        for (final Value rightValue : match.getRightRecord()) {
+            columnNames.add(context.getDatabase().sanitizeName(rightValue.getAttributeName()));
+            lowerCaseColumnNames.add(rightValue.getAttributeName().toLowerCase());
+        }
+
+        writeLeftKey = null != leftKeyAttributeNameTarget && !lowerCaseColumnNames.contains(leftKeyAttributeNameTarget.toLowerCase());
+        if (writeLeftKey) {
+            columnNames.add(leftKeyAttributeNameTarget);
+        }
+        writeRightKey = null != rightKeyAttributeNameTarget && !lowerCaseColumnNames.contains(rightKeyAttributeNameTarget.toLowerCase());
+        if (writeRightKey) {
+            columnNames.add(rightKeyAttributeNameTarget);
+        }
+
+        partialExactColumnNames = new ArrayList<>();
+        if (leftMatchAttributes.size() == rightMatchAttributes.size()) {
+            for (final String leftMatchAttribute : leftMatchAttributes) {
+                partialExactColumnNames.add(exactAttributeNameMap.get(leftMatchAttribute));
+            }
+        }
+        columnNames.addAll(partialExactColumnNames);
+
+        columnNames.add("match_exact");
+        columnNames.add("match_jaro");
+        columnNames.add("match_jarowinkler");
+        columnNames.add("match_dice");
+
+        legastColumnNames = new ArrayList<>();
+        for (final MatchOption mo : matchArguments.getOptions()) {
+            if (mo.getType() == MatchOption.OPT_LEGASTODETECT) {
+                legastColumnNames.add(matchOptionAttributeNameMap.get(mo));
+            }
+        }
+        columnNames.addAll(legastColumnNames);
+
+        matchColumnNames = columnNames;
+    }
+
+    /**
+     * scores a chunk of left records against the right records
+     */
+    private class LeftChunkMatcher implements Callable<List<Match>> {
+
+        private final List<Record> allLeft;
+
+        private final int start;
+
+        private final int end;
+
+        private final List<MatchKey> rightKeys;
+
+        private LeftChunkMatcher(final List<Record> allLeft, final int start, final int end, final List<MatchKey> rightKeys)
+        {
+            this.allLeft = allLeft;
+            this.start = start;
+            this.end = end;
+            this.rightKeys = rightKeys;
+        }
+
+        @Override
+        public List<Match> call()
+        {
+            final List<Match> matches = new ArrayList<>();
+            for (int i = start; i < end; i++) {
+                matches.addAll(matchLeftRecord(allLeft.get(i), rightKeys, i < RECALL_SAMPLE_SIZE));
+            }
+            return matches;
+        }
+    }
 }
@@ -187,6 +187,69 @@ public class MatchArguments {
                 matchOptions.add(new MatchOption(MatchOption.OPT_THRESHOLD, ht));
             }
 
+            if (argument.contains("blocking")) {
+                final String between = TextUtils.between(argument, "blocking(", ")");
+                if (null == between) {
+                    return null;
+                }
+                final String[] blockingArguments = between.split(",");
+                final BlockingMethod method = BlockingMethod.byMethodName(blockingArguments[0]);
+                if (null == method) {
+                    return null;
+                }
+                final Hashtable<String, Object> ht = new Hashtable<>();
+                ht.put("method", method);
+                if (blockingArguments.length > 1) {
+                    try {
+                        ht.put("parameter", Integer.valueOf(blockingArguments[1].trim()));
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                }
+                matchOptions.add(new MatchOption(MatchOption.OPT_BLOCKING, ht));
+            }
+
+            if (argument.startsWith("top(")) {
+                final String between = TextUtils.between(argument, "top(", ")");
+                if (null == between) {
+                    return null;
+                }
+                final Hashtable<String, Object> ht = new Hashtable<>();
+                try {
+                    final Integer k = Integer.valueOf(between.trim());
+                    if (k < 1) {
+                        return null;
+                    }
+                    ht.put("k", k);
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+                matchOptions.add(new MatchOption(MatchOption.OPT_TOP, ht));
+            }
+
+            if (argument.contains("parallel")) {
+                // without number of threads, all processors are used
+                final String between = TextUtils.between(argument, "parallel(", ")");
+                Hashtable<String, Object> ht = null;
+                if (null != between) {
+                    ht = new Hashtable<>();
+                    try {
+                        final Integer threads = Integer.valueOf(between.trim());
+                        if (threads < 1) {
+                            return null;
+                        }
+                        ht.put("threads", threads);
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                }
+                matchOptions.add(new MatchOption(MatchOption.OPT_PARALLEL, ht));
+            }
+
+            if (argument.equals("resume")) {
+                matchOptions.add(new MatchOption(MatchOption.OPT_RESUME));
+            }
+
             if (argument.contains("displayleft")) {
                 String argumentString = TextUtils.between(argument.toLowerCase(), "displayleft(", ")");
                 matchOptions.add(new MatchOption(MatchOption.OPT_DISPLAYLEFT, buildHtFromCSVArguments(argumentString)));
@@ -0,0 +1,147 @@
+package ch.brickwork.bsuit.matcher;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Collects the matches of one left record while it is compared with the right records, keeping only the matches
+ * which will be written: all exact matches, or - if there are none - the non exact matches above the threshold, of
+ * which only the best ones if their number is limited. The best non exact matches are kept in a heap, such that
+ * memory does not grow with the number of right records.
+ * <p/>
+ * Scores are to be checked with accepts() before the match is created and added.
+ * Used in MagicMatcher to prepare the match tables.
+ */
+class MatchCollector {
+
+    /**
+     * worst match first
+     */
+    private static final Comparator<Match> WORST_FIRST = new Comparator<Match>() {
+        @Override
+        public int compare(final Match m1, final Match m2)
+        {
+            return Double.compare(bestMatchMetric(m1), bestMatchMetric(m2));
+        }
+    };
+
+    private final int maxNonExactMatches;
+
+    private final double threshold;
+
+    private final List<Match> exactMatches = new ArrayList<>();
+
+    /**
+     * non exact matches, in the order they were found, if their number is not limited
+     */
+    private final List<Match> nonExactMatches = new ArrayList<>();
+
+    /**
+     * best non exact matches, if their number is limited
+     */
+    private final PriorityQueue<Match> bestNonExactMatches;
+
+    /**
+     * @param maxNonExactMatches number of non exact matches kept, the best ones; 0 to keep all
+     * @param threshold          non exact matches are only kept if at least one of the scores is higher (strictly
+     *                           higher) than this
+     */
+    MatchCollector(final int maxNonExactMatches, final double threshold)
+    {
+        this.maxNonExactMatches = maxNonExactMatches;
+        this.threshold = threshold;
+        bestNonExactMatches = maxNonExactMatches > 0 ? new PriorityQueue<>(maxNonExactMatches, WORST_FIRST) : null;
+    }
+
+    /**
+     * the function used to sort matches according to their quality
+     */
+    static double bestMatchMetric(final double diceScore, final double jaroScore, final double jaroWinklerScore)
+    {
+        return (diceScore + jaroScore + jaroWinklerScore) / 3;
+    }
+
+    private static double bestMatchMetric(final Match m)
+    {
+        return bestMatchMetric(m.getDiceScore(), m.getJaroScore(), m.getJaroWinklerScore());
+    }
+
+    /**
+     * @return true if exact matches were found, in which case no non exact matches are accepted any more
+     */
+    boolean hasExactMatches()
+    {
+        return !exactMatches.isEmpty();
+    }
+
+    /**
+     * @return true if non exact matches may be rejected, i.e. there is a threshold or the number of matches is limited
+     */
+    boolean isSelective()
+    {
+        return threshold >= 0 || null != bestNonExactMatches;
+    }
+
+    /**
+     * @return true if a non exact match with these scores would be kept (for now). As the scores only need to be high
+     * enough, upper bounds of the scores may be checked as well, to find matches which will not be kept anyway
+     */
+    boolean accepts(final double diceScore, final double jaroScore, final double jaroWinklerScore)
+    {
+        if (hasExactMatches() || (diceScore <= threshold && jaroScore <= threshold && jaroWinklerScore <= threshold)) {
+            return false;
+        }
+        if (null == bestNonExactMatches || bestNonExactMatches.size() < maxNonExactMatches) {
+            return true;
+        }
+
+        // on equal metric, the match found first wins
+        return bestMatchMetric(diceScore, jaroScore, jaroWinklerScore) > bestMatchMetric(bestNonExactMatches.peek());
+    }
+
+    void addExactMatch(final Match match)
+    {
+        exactMatches.add(match);
+        nonExactMatches.clear();
+        if (null != bestNonExactMatches) {
+            bestNonExactMatches.clear();
+        }
+    }
+
+    /**
+     * adds a match accepted before, possibly dropping the worst one kept so far
+     */
+    void addNonExactMatch(final Match match)
+    {
+        if (null == bestNonExactMatches) {
+            nonExactMatches.add(match);
+        } else {
+            if (bestNonExactMatches.size() == maxNonExactMatches) {
+                bestNonExactMatches.poll();
+            }
+            bestNonExactMatches.add(match);
+        }
+    }
+
+    /**
+     * @return the exact matches, if any, otherwise the non exact matches kept, the best first if their number is
+     * limited
+     */
+    List<Match> getMatches()
+    {
+        if (hasExactMatches()) {
+            return exactMatches;
+        }
+        if (null == bestNonExactMatches) {
+            return nonExactMatches;
+        }
+
+        final List<Match> bestFirst = new ArrayList<>(bestNonExactMatches);
+        Collections.sort(bestFirst, Collections.reverseOrder(WORST_FIRST));
+        return bestFirst;
+    }
+}
@@ -0,0 +1,162 @@
+package ch.brickwork.bsuit.matcher;
+
+import ch.brickwork.bsuit.database.Record;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The match attributes of a record, prepared once such that comparing the record with many others does not build
+ * the same strings again and again: the trimmed values (for exact matching), the values separated by * (the key
+ * scored by the similarity measures), its lower case characters (for Jaro) and its distinct bigrams (for Dice's coefficient), as well
+ * as the key written to the match table.
+ */
+class MatchKey {
+
+    private final Record record;
+
+    private final String[] trimmedValues;
+
+    private final String scoreKey;
+
+    private final char[] lowerCaseScoreKey;
+
+    private final long[] bigrams;
+
+    private final String combinedKey;
+
+    /**
+     * @param record              left or right record
+     * @param attributeNames      names of the match attributes in the record
+     * @param right               true for a right record
+     * @param rightAttributeCount number of match attributes of right records
+     */
+    MatchKey(final Record record, final List<String> attributeNames, final boolean right, final int rightAttributeCount)
+    {
+        this.record = record;
+        trimmedValues = new String[attributeNames.size()];
+
+        final StringBuilder scoreKeyBuilder = new StringBuilder();
+        for (int i = 0; i < attributeNames.size(); i++) {
+            final String value = (String) record.getValue(attributeNames.get(i)).getValue();
+            trimmedValues[i] = value.trim();
+
+            if (i > 0) {
+                scoreKeyBuilder.append("*");
+            }
+            scoreKeyBuilder.append(value);
+        }
+        scoreKey = scoreKeyBuilder.toString();
+        lowerCaseScoreKey = scoreKey.toLowerCase().toCharArray();
+        combinedKey = right ? toCombinedRightKey(trimmedValues) : toCombinedLeftKey(trimmedValues, rightAttributeCount);
+        bigrams = StringSimilarity.bigrams(scoreKey);
+    }
+
+    /**
+     * @return the trimmed values separated by *, with a * appended for each right attribute but the first, as the
+     * left keys in the match tables have always looked
+     */
+    private static String toCombinedLeftKey(final String[] trimmedValues, final int rightAttributeCount)
+    {
+        final StringBuilder combinedKey = new StringBuilder();
+        for (int i = 0; i < trimmedValues.length; i++) {
+            if (i > 0) {
+                combinedKey.append("*");
+            }
+            combinedKey.append(trimmedValues[i]);
+        }
+        for (int i = 1; i < rightAttributeCount; i++) {
+            combinedKey.append("*");
+        }
+        return combinedKey.toString();
+    }
+
+    /**
+     * @return the trimmed values, each followed by a * (and a second one for all but the first), as the right keys in
+     * the match tables have always looked
+     */
+    private static String toCombinedRightKey(final String[] trimmedValues)
+    {
+        final StringBuilder combinedKey = new StringBuilder();
+        for (int i = 0; i < trimmedValues.length; i++) {
+            combinedKey.append(trimmedValues[i]);
+            combinedKey.append(i == 0 ? "*" : "**");
+        }
+        return combinedKey.toString();
+    }
+
+    Record getRecord()
+    {
+        return record;
+    }
+
+    /**
+     * @return trimmed values of the match attributes
+     */
+    String[] getTrimmedValues()
+    {
+        return trimmedValues;
+    }
+
+    /**
+     * @return values of the match attributes separated by *, as compared by the similarity measures
+     */
+    String getScoreKey()
+    {
+        return scoreKey;
+    }
+
+    char[] getLowerCaseScoreKey()
+    {
+        return lowerCaseScoreKey;
+    }
+
+    /**
+     * @return number of distinct bigrams of the score key
+     */
+    int countBigrams()
+    {
+        return bigrams.length;
+    }
+
+    /**
+     * @return key written to the match table
+     */
+    String getCombinedKey()
+    {
+        return combinedKey;
+    }
+
+    /**
+     * @return true if the trimmed values of the match attributes of both keys are equal. Keys with a different
+     * number of match attributes are always considered equal
+     */
+    boolean isExactMatch(final MatchKey other)
+    {
+        return trimmedValues.length != other.trimmedValues.length || Arrays.equals(trimmedValues, other.trimmedValues);
+    }
+
+    /**
+     * @return Jaro score of both score keys
+     */
+    double jaro(final MatchKey other)
+    {
+        return StringSimilarity.jaro(lowerCaseScoreKey, other.lowerCaseScoreKey, scoreKey.length() > other.scoreKey.length());
+    }
+
+    /**
+     * @return length of the common prefix of both score keys, lower case, as far as relevant for Jaro-Winkler
+     */
+    int commonPrefixLength(final MatchKey other)
+    {
+        return StringSimilarity.commonPrefixLength(lowerCaseScoreKey, other.lowerCaseScoreKey);
+    }
+
+    /**
+     * @return Dice's coefficient of the bigrams of both score keys
+     */
+    double dice(final MatchKey other)
+    {
+        return StringSimilarity.dice(bigrams, other.bigrams);
+    }
+}
@@ -16,6 +16,14 @@ class MatchOption {
 
     public static final int OPT_DISPLAYRIGHT = 5;
 
+    public static final int OPT_BLOCKING = 6;
+
+    public static final int OPT_PARALLEL = 7;
+
+    public static final int OPT_TOP = 8;
+
+    public static final int OPT_RESUME = 9;
+
     private final Hashtable<String, Object> arguments;
 
     private final int type;
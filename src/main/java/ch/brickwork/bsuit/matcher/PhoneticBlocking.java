@@ -0,0 +1,58 @@
+package ch.brickwork.bsuit.matcher;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Compares records having at least one token of their keys sounding alike, i.e. having the same Soundex code
+ * (e.g. "Meyer" and "Maier"). Tokens without letters a-z (e.g. numbers) are used as they are.
+ */
+class PhoneticBlocking extends InvertedIndexBlocking {
+
+    /**
+     * Soundex digit of the letters a-z, 0 for letters which are not coded
+     */
+    private static final String SOUNDEX_DIGITS = "01230120022455012623010202";
+
+    @Override
+    protected Set<String> getBlockingKeys(final String key) {
+        final Set<String> codes = new HashSet<>();
+        for (String token : TokenBlocking.tokenize(key)) {
+            codes.add(soundex(token));
+        }
+        return codes;
+    }
+
+    /**
+     * @param token token in lower case
+     * @return Soundex code of the letters a-z of the token (first letter and three digits), or the token itself if
+     * it has no such letters
+     */
+    static String soundex(final String token) {
+        final StringBuilder code = new StringBuilder(4);
+        char lastDigit = 0;
+        for (int i = 0; i < token.length() && code.length() < 4; i++) {
+            final char c = token.charAt(i);
+            if (c < 'a' || c > 'z') {
+                continue;
+            }
+            final char digit = SOUNDEX_DIGITS.charAt(c - 'a');
+            if (code.length() == 0) {
+                code.append(Character.toUpperCase(c));
+            } else if (digit != '0' && digit != lastDigit) {
+                code.append(digit);
+            }
+            // h and w do not separate letters with the same code, vowels do
+            if (c != 'h' && c != 'w') {
+                lastDigit = digit;
+            }
+        }
+        if (code.length() == 0) {
+            return token;
+        }
+        while (code.length() < 4) {
+            code.append('0');
+        }
+        return code.toString();
+    }
+}
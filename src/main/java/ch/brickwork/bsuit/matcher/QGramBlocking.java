@@ -0,0 +1,36 @@
+package ch.brickwork.bsuit.matcher;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Compares records having at least one q-gram (substring of length q, ignoring case) of their keys in common.
+ * Keys shorter than q are a q-gram of their own.
+ */
+class QGramBlocking extends InvertedIndexBlocking {
+
+    static final int DEFAULT_Q = 3;
+
+    private final int q;
+
+    /**
+     * @param q length of the q-grams
+     */
+    QGramBlocking(final int q) {
+        this.q = q;
+    }
+
+    @Override
+    protected Set<String> getBlockingKeys(final String key) {
+        final String normalized = key.trim().toLowerCase();
+        final Set<String> qGrams = new HashSet<>();
+        if (normalized.length() <= q) {
+            qGrams.add(normalized);
+        } else {
+            for (int i = 0; i + q <= normalized.length(); i++) {
+                qGrams.add(normalized.substring(i, i + q));
+            }
+        }
+        return qGrams;
+    }
+}
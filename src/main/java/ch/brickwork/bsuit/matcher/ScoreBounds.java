@@ -0,0 +1,44 @@
+package ch.brickwork.bsuit.matcher;
+
+/**
+ * Cheap upper bounds of the similarity scores computed by the matcher, such that pairs which cannot reach the
+ * threshold (or the matches kept already) need not be scored. The bounds are rounded up slightly, so that rounding
+ * errors never make a bound lower than the score itself.
+ */
+final class ScoreBounds {
+
+    private static final double TOLERANCE = 1e-9;
+
+    private ScoreBounds()
+    {
+    }
+
+    /**
+     * the Jaro score is at most (1 + shorter / longer + 1) / 3, as at most all characters of the shorter string match
+     *
+     * @param length1 length of the first string, lower case
+     * @param length2 length of the second string, lower case
+     * @return upper bound of the Jaro score
+     */
+    static double jaro(final int length1, final int length2)
+    {
+        if (length1 == 0 || length2 == 0) {
+            return 0;
+        }
+        final double matching = Math.min(length1, length2);
+        return (matching / length1 + matching / length2 + 1.0) / 3 + TOLERANCE;
+    }
+
+    /**
+     * Dice's coefficient is at most 2 * min(bigrams1, bigrams2) / (bigrams1 + bigrams2), as at most all bigrams of
+     * the string with less bigrams are shared
+     *
+     * @param bigrams1 number of distinct bigrams of the first string
+     * @param bigrams2 number of distinct bigrams of the second string
+     * @return upper bound of Dice's coefficient of the strings
+     */
+    static double dice(final int bigrams1, final int bigrams2)
+    {
+        return 2.0 * Math.min(bigrams1, bigrams2) / (bigrams1 + bigrams2) + TOLERANCE;
+    }
+}
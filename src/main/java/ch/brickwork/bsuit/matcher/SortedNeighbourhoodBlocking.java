@@ -0,0 +1,82 @@
+package ch.brickwork.bsuit.matcher;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sorted neighbourhood: the right keys are sorted (ignoring case), and a left record is compared with the right
+ * records within a window around the position its key would have in this order, plus all right records with the
+ * same key.
+ */
+class SortedNeighbourhoodBlocking implements IBlockingStrategy {
+
+    static final int DEFAULT_WINDOW = 20;
+
+    private final int window;
+
+    private String[] sortedKeys = new String[0];
+
+    /**
+     * position in the sorted order -> position in the list of right keys
+     */
+    private int[] sortedPositions = new int[0];
+
+    /**
+     * @param window number of right records compared with each left record (unless there are more right records with
+     *               the same key)
+     */
+    SortedNeighbourhoodBlocking(final int window) {
+        this.window = window;
+    }
+
+    @Override
+    public void index(final List<String> rightKeys) {
+        final String[] keys = new String[rightKeys.size()];
+        final Integer[] order = new Integer[rightKeys.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = normalize(rightKeys.get(i));
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return keys[a].compareTo(keys[b]);
+            }
+        });
+
+        final String[] newSortedKeys = new String[keys.length];
+        final int[] newSortedPositions = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            newSortedKeys[i] = keys[order[i]];
+            newSortedPositions[i] = order[i];
+        }
+        sortedKeys = newSortedKeys;
+        sortedPositions = newSortedPositions;
+    }
+
+    @Override
+    public int[] getCandidates(final String leftKey) {
+        final String key = normalize(leftKey);
+        int found = Arrays.binarySearch(sortedKeys, key);
+        int first = found >= 0 ? found : -found - 1;
+        int last = first;
+        // all right records with the same key
+        while (first > 0 && sortedKeys[first - 1].equals(key)) {
+            first--;
+        }
+        while (last < sortedKeys.length && sortedKeys[last].equals(key)) {
+            last++;
+        }
+        first = Math.max(0, first - window / 2);
+        last = Math.min(sortedKeys.length, last + window / 2);
+
+        final int[] candidates = Arrays.copyOfRange(sortedPositions, first, last);
+        Arrays.sort(candidates);
+        return candidates;
+    }
+
+    private static String normalize(final String key) {
+        return key.trim().toLowerCase();
+    }
+}
@@ -0,0 +1,214 @@
+package ch.brickwork.bsuit.matcher;
+
+import java.util.Arrays;
+
+/**
+ * The similarity measures of the fuzzy match: Jaro, Jaro-Winkler and Dice's coefficient. They give exactly the scores
+ * of JaroStrategy, JaroWinklerStrategy and DiceCoefficientStrategy of the string-similarity library used before,
+ * quirks included (e.g., Jaro marks matched characters with '*', such that a '*' matches any character matched
+ * already), but work on char and bigram arrays prepared once per string and on scratch buffers reused per thread,
+ * without allocating anything per pair.
+ */
+public final class StringSimilarity {
+
+    private static final double JARO_WINKLER_SCALING_FACTOR = 0.1;
+
+    private static final int JARO_WINKLER_MAX_PREFIX = 4;
+
+    private static final char MATCHED = '*';
+
+    /**
+     * codes of strings shorter than 2 characters, which are a bigram themselves; above all codes of real bigrams
+     */
+    private static final long SHORT_STRING_CODE = 1L << 32;
+
+    private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue()
+        {
+            return new Scratch();
+        }
+    };
+
+    private StringSimilarity()
+    {
+    }
+
+    /**
+     * @return Jaro score of s1 and s2, ignoring case
+     */
+    public static double jaro(final String s1, final String s2)
+    {
+        return jaro(s1.toLowerCase().toCharArray(), s2.toLowerCase().toCharArray(), s1.length() > s2.length());
+    }
+
+    /**
+     * @return Jaro-Winkler score of s1 and s2, ignoring case
+     */
+    public static double jaroWinkler(final String s1, final String s2)
+    {
+        final char[] lowerCase1 = s1.toLowerCase().toCharArray();
+        final char[] lowerCase2 = s2.toLowerCase().toCharArray();
+        return jaroWinkler(jaro(lowerCase1, lowerCase2, s1.length() > s2.length()), commonPrefixLength(lowerCase1, lowerCase2));
+    }
+
+    /**
+     * @return Dice's coefficient of the bigrams of s1 and s2, case sensitive
+     */
+    public static double dice(final String s1, final String s2)
+    {
+        return dice(bigrams(s1), bigrams(s2));
+    }
+
+    /**
+     * @param lowerCase1   first string, lower case
+     * @param lowerCase2   second string, lower case
+     * @param firstLonger  true if the first string is longer than the second one (before changing to lower case), in
+     *                     which case it is the one matched against
+     * @return Jaro score of the strings
+     */
+    static double jaro(final char[] lowerCase1, final char[] lowerCase2, final boolean firstLonger)
+    {
+        final char[] shorter = firstLonger ? lowerCase2 : lowerCase1;
+        final char[] longer = firstLonger ? lowerCase1 : lowerCase2;
+        final int halfLength = shorter.length / 2 + 1;
+
+        final Scratch scratch = SCRATCH.get();
+        scratch.ensureCapacity(Math.max(shorter.length, longer.length));
+        final int matching1 = matchingCharacters(shorter, longer, halfLength, scratch.copy, scratch.matching1);
+        final int matching2 = matchingCharacters(longer, shorter, halfLength, scratch.copy, scratch.matching2);
+
+        if (matching1 == 0 || matching2 == 0 || matching1 != matching2) {
+            return 0;
+        }
+
+        int transpositions = 0;
+        for (int i = 0; i < matching1; i++) {
+            if (scratch.matching1[i] != scratch.matching2[i]) {
+                transpositions++;
+            }
+        }
+        transpositions /= 2;
+
+        return ((double) matching1 / shorter.length + (double) matching2 / longer.length + (double) (matching1 - transpositions) / matching1) / 3;
+    }
+
+    /**
+     * collects the characters of first which are found in second within the given distance, each character of second
+     * being used once at most
+     *
+     * @param copy     buffer to copy second to
+     * @param matching buffer for the matching characters
+     * @return number of matching characters
+     */
+    private static int matchingCharacters(final char[] first, final char[] second, final int limit, final char[] copy, final char[] matching)
+    {
+        System.arraycopy(second, 0, copy, 0, second.length);
+        int count = 0;
+        for (int i = 0; i < first.length; i++) {
+            final char c = first[i];
+            final int end = Math.min(i + limit, second.length);
+            for (int j = Math.max(0, i - limit); j < end; j++) {
+                if (copy[j] == c) {
+                    matching[count++] = c;
+                    copy[j] = MATCHED;
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param jaro         Jaro score of two strings (or an upper bound of it)
+     * @param commonPrefix length of the common prefix of the strings, lower case
+     * @return Jaro-Winkler score of the strings (or an upper bound of it)
+     */
+    static double jaroWinkler(final double jaro, final int commonPrefix)
+    {
+        return jaro + JARO_WINKLER_SCALING_FACTOR * Math.min(commonPrefix, JARO_WINKLER_MAX_PREFIX) * (1.0 - jaro);
+    }
+
+    /**
+     * @return length of the common prefix of both strings, at most as long as taken into account by Jaro-Winkler
+     */
+    static int commonPrefixLength(final char[] s1, final char[] s2)
+    {
+        final int max = Math.min(JARO_WINKLER_MAX_PREFIX, Math.min(s1.length, s2.length));
+        int length = 0;
+        while (length < max && s1[length] == s2[length]) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * @return sorted codes of the distinct bigrams of s (case sensitive). A string shorter than 2 characters is a
+     * bigram itself
+     */
+    static long[] bigrams(final String s)
+    {
+        if (s.length() < 2) {
+            return new long[] {SHORT_STRING_CODE + (s.isEmpty() ? 0 : 1 + s.charAt(0))};
+        }
+
+        final long[] codes = new long[s.length() - 1];
+        for (int i = 1; i < s.length(); i++) {
+            codes[i - 1] = (long) s.charAt(i - 1) << 16 | s.charAt(i);
+        }
+        Arrays.sort(codes);
+
+        int distinct = 1;
+        for (int i = 1; i < codes.length; i++) {
+            if (codes[i] != codes[distinct - 1]) {
+                codes[distinct++] = codes[i];
+            }
+        }
+        return distinct == codes.length ? codes : Arrays.copyOf(codes, distinct);
+    }
+
+    /**
+     * @param bigrams1 sorted distinct bigrams of the first string, see bigrams()
+     * @param bigrams2 sorted distinct bigrams of the second string
+     * @return Dice's coefficient of the strings
+     */
+    static double dice(final long[] bigrams1, final long[] bigrams2)
+    {
+        int shared = 0;
+        int i = 0;
+        int j = 0;
+        while (i < bigrams1.length && j < bigrams2.length) {
+            if (bigrams1[i] < bigrams2[j]) {
+                i++;
+            } else if (bigrams1[i] > bigrams2[j]) {
+                j++;
+            } else {
+                shared++;
+                i++;
+                j++;
+            }
+        }
+        return 2.0 * shared / (bigrams1.length + bigrams2.length);
+    }
+
+    /**
+     * buffers of one thread, grown to the longest string seen
+     */
+    private static class Scratch {
+
+        private char[] copy = new char[0];
+
+        private char[] matching1 = new char[0];
+
+        private char[] matching2 = new char[0];
+
+        private void ensureCapacity(final int length)
+        {
+            if (copy.length < length) {
+                copy = new char[length];
+                matching1 = new char[length];
+                matching2 = new char[length];
+            }
+        }
+    }
+}
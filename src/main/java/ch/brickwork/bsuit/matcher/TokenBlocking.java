@@ -0,0 +1,39 @@
+package ch.brickwork.bsuit.matcher;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Compares records having at least one token (word or number, ignoring case) of their keys in common.
+ */
+class TokenBlocking extends InvertedIndexBlocking {
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    @Override
+    protected Set<String> getBlockingKeys(final String key) {
+        final Set<String> tokens = new HashSet<>();
+        for (String token : tokenize(key)) {
+            tokens.add(token);
+        }
+        return tokens;
+    }
+
+    /**
+     * @param key match key
+     * @return the non-empty tokens of the key, in lower case
+     */
+    static String[] tokenize(final String key) {
+        final String[] tokens = TOKEN_SEPARATOR.split(key.toLowerCase());
+        int count = 0;
+        for (String token : tokens) {
+            if (!token.isEmpty()) {
+                tokens[count++] = token;
+            }
+        }
+        final String[] nonEmptyTokens = new String[count];
+        System.arraycopy(tokens, 0, nonEmptyTokens, 0, count);
+        return nonEmptyTokens;
+    }
+}
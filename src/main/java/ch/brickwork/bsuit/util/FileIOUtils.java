@@ -122,11 +122,9 @@ public final class FileIOUtils {
             }
 
             // write
-            final FileWriter fw = new FileWriter(file);
-            for (int i = 0; i < text.length(); i++) {
-                fw.append(text.charAt(i));
+            try (final Writer writer = new BufferedWriter(new FileWriter(file))) {
+                writer.write(text);
             }
-            fw.flush();
             return file;
         } catch (IOException e) {
             LOG.severe(e.getMessage());
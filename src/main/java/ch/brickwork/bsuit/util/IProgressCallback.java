@@ -0,0 +1,12 @@
+package ch.brickwork.bsuit.util;
+
+/**
+ * Callback informed of the progress of a long running operation, e.g. an export, instead of logging each step
+ */
+public interface IProgressCallback {
+
+    /**
+     * @param count number of items (e.g. records) processed so far
+     */
+    void progress(long count);
+}
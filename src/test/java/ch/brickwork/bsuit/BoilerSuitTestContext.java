@@ -148,6 +148,7 @@ public class BoilerSuitTestContext {
     }
 
     public void dispose() {
+        db.close();
         System.out.println("delete " + dir.getAbsolutePath());
         FileIOUtils.deleteRuthlessly(new File(dir.getAbsolutePath()));
     }
@@ -98,6 +98,34 @@ public class BsfTest {
         assertEquals("unique b's starting with Y", 89, tc.getContext().getDatabase().count("by"));
     }
 
+    @Test
+    public void testFormatNumber() {
+        tc.processScript(
+                "+formattest(!id, nr);\n" +
+                        "INSERT INTO formattest VALUES(1, '1');\n" +
+                        "INSERT INTO formattest VALUES(2, ' 239 ');\n" +
+                        "INSERT INTO formattest VALUES(3, '99999');\n" +
+                        "INSERT INTO formattest VALUES(4, NULL);\n"
+        );
+
+        // formatnumber alone is evaluated by the database
+        tc.processScript("formattest2 := formattest(id, formatnumber(nr, A-DDDD) AS a, formatnumber(nr, X'DY) AS b);");
+        List<Record> recs = tc.getContext().getDatabase().prepare("SELECT a, b FROM formattest2 ORDER BY id");
+        assertEquals("A-0001", recs.get(0).getValue("a").getValue());
+        assertEquals("X'1Y", recs.get(0).getValue("b").getValue());
+        assertEquals("A-0239", recs.get(1).getValue("a").getValue());
+        assertEquals("X'239Y", recs.get(1).getValue("b").getValue());
+        assertEquals("A-99999", recs.get(2).getValue("a").getValue());
+        assertEquals("A-0000", recs.get(3).getValue("a").getValue());
+
+        // ...and together with a function post-processed
+        tc.processScript("formattest3 := formattest(id, formatnumber(nr, DDD) AS a, hash(nr) AS h);");
+        recs = tc.getContext().getDatabase().prepare("SELECT a, h FROM formattest3 ORDER BY id");
+        assertEquals("001", recs.get(0).getValue("a").getValue());
+        assertEquals("X" + "1".hashCode(), recs.get(0).getValue("h").getValue());
+        assertEquals("239", recs.get(1).getValue("a").getValue());
+    }
+
     @AfterClass
     public static void cleanUp() {
         tc.dispose();
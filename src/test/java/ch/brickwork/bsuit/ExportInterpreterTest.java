@@ -1,13 +1,32 @@
 package ch.brickwork.bsuit;
 
+import ch.brickwork.bsuit.database.Record;
+import ch.brickwork.bsuit.interpreter.interpreters.ExportInterpreter;
 import ch.brickwork.bsuit.interpreter.interpreters.ProcessingResult;
 import ch.brickwork.bsuit.util.FileIOUtils;
+import ch.brickwork.bsuit.util.IProgressCallback;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.w3c.dom.Document;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
 
 import static org.junit.Assert.assertEquals;
 
@@ -28,6 +47,11 @@ public class ExportInterpreterTest {
     public void removeOutput() {
         tc.flush();
         FileIOUtils.deleteRuthlessly(new File("usexp.csv"));
+        FileIOUtils.deleteRuthlessly(new File("usexp.csv.gz"));
+        FileIOUtils.deleteRuthlessly(new File("usexp.xlsx"));
+        FileIOUtils.deleteRuthlessly(new File("usexp.xls"));
+        FileIOUtils.deleteRuthlessly(new File("usexp.xml"));
+        FileIOUtils.deleteRuthlessly(new File("usexp.bsc"));
     }
 
     @Test
@@ -58,12 +82,155 @@ public class ExportInterpreterTest {
         assertEquals(true, s.startsWith("'first_name'\t'last_name'\t'company_name'\t'address'\t'city'\t'county'\t'state'\t'zip'\t'phone1'\t'phone2'\t'email'\t'web'\n'Jam<tab>es'\t'O\\'Butt'"));
     }
 
+    @Test
+    public void testGzipCSVExport() throws IOException {
+        tc.processScript("us =: usexp.csv WITH buffer(100);");
+        tc.processScript("us =: usexp.csv.gz;");
+        assertEquals(true, tc.noErrors());
+
+        final StringBuilder unzipped = new StringBuilder();
+        try (Reader reader = new InputStreamReader(new GZIPInputStream(new FileInputStream(new File(tc.getContext().getWorkingDirectory(), "usexp.csv.gz"))))) {
+            final char[] buffer = new char[4096];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                unzipped.append(buffer, 0, read);
+            }
+        }
+        assertEquals(tc.readCompleteFile("usexp.csv"), unzipped.toString());
+        assertEquals(501, unzipped.toString().split("\n").length);
+    }
+
+    @Test
+    public void testSpreadsheetSheetRollover() throws IOException {
+        tc.processScript("us =: usexp.xlsx WITH sheetrows(201);");
+        tc.processScript("us =: usexp.xls WITH sheetrows(201);");
+        assertEquals(true, tc.noErrors());
+
+        for (String fileName : new String[] {"usexp.xlsx", "usexp.xls"}) {
+            try (InputStream in = new FileInputStream(new File(tc.getContext().getWorkingDirectory(), fileName))) {
+                final Workbook workbook = WorkbookFactory.create(in);
+                assertEquals(fileName, 3, workbook.getNumberOfSheets());
+                assertEquals("us_2", workbook.getSheetName(1));
+
+                // each sheet starts with the header, no row is overwritten
+                int records = 0;
+                for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+                    final Sheet sheet = workbook.getSheetAt(i);
+                    assertEquals("first_name", sheet.getRow(0).getCell(0).getStringCellValue());
+                    records += sheet.getLastRowNum();
+                }
+                assertEquals(fileName, 500, records);
+            } catch (InvalidFormatException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    @Test
+    public void testXMLExport() throws Exception {
+        final List<Long> progress = new ArrayList<>();
+        final ExportInterpreter exportInterpreter = new ExportInterpreter(null, "us =: usexp.xml", tc.getContext());
+        exportInterpreter.setProgressCallback(new IProgressCallback() {
+            @Override
+            public void progress(long count) {
+                progress.add(count);
+            }
+        });
+        exportInterpreter.process();
+        assertEquals(true, tc.noErrors());
+        assertEquals("[500]", progress.toString());
+
+        String s = tc.readCompleteFile("usexp.xml");
+        assertEquals(true, s.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<DocumentElement>\n<us>\n\t<first_name>"));
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new File(tc.getContext().getWorkingDirectory(), "usexp.xml"));
+        assertEquals(500, document.getElementsByTagName("us").getLength());
+
+        tc.processScript("us =: usexp.xml WITH compact();");
+        assertEquals(true, tc.noErrors());
+        s = tc.readCompleteFile("usexp.xml");
+        assertEquals(true, s.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?><DocumentElement><us><first_name>"));
+        document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new File(tc.getContext().getWorkingDirectory(), "usexp.xml"));
+        assertEquals(500, document.getElementsByTagName("us").getLength());
+    }
+
+    @Test
+    public void testColumnarRoundTrip() {
+        tc.processScript("us =: usexp.bsc;");
+        tc.processScript("usback := usexp.bsc;");
+        assertEquals(true, tc.noErrors());
+        assertEquals(500, tc.db().count("usback"));
+        assertEquals("[first_name, last_name, company_name, address, city, county, state, zip, phone1, phone2, email, web]",
+            tc.db().getTableOrViewColumnNames("usback").toString());
+        assertEquals("0", "" + tc.db().prepare("SELECT COUNT(*) FROM (SELECT * FROM us EXCEPT SELECT * FROM usback)").get(0).getFirstValueContent());
+
+        // column types survive, also compressed
+        tc.processScript("ustyped := SELECT first_name, CAST(zip AS INTEGER) AS zip_number, CAST(zip / 4.0 AS REAL) AS zip_quarter FROM us;");
+        tc.processScript("ustyped =: usexp.bsc WITH compress();");
+        tc.processScript("ustypedback := usexp.bsc;");
+        assertEquals(true, tc.noErrors());
+        final Record types = tc.db().prepare("SELECT typeof(first_name) AS t1, typeof(zip_number) AS t2, typeof(zip_quarter) AS t3 FROM ustypedback").get(0);
+        assertEquals("Record: t1: text, t2: integer, t3: real", types.toString());
+        assertEquals("0", "" + tc.db().prepare("SELECT COUNT(*) FROM (SELECT * FROM ustyped EXCEPT SELECT * FROM ustypedback)").get(0).getFirstValueContent());
+
+        // so do NULLs, also in INTEGER columns, and all digits of reals
+        tc.processScript("usnulls := SELECT CAST(CASE WHEN zip % 2 = 0 THEN zip END AS INTEGER) AS even_zip, CAST(zip / 3.0 AS REAL) AS zip_third,"
+            + " CASE WHEN zip % 3 = 0 THEN '' END AS empty_or_null FROM us;");
+        tc.processScript("usnulls =: usexp.bsc;");
+        tc.processScript("usnullsback := usexp.bsc;");
+        assertEquals(true, tc.noErrors());
+        assertEquals(tc.db().prepare("SELECT COUNT(*) FROM usnulls WHERE even_zip IS NULL").get(0).getFirstValueContent(),
+            tc.db().prepare("SELECT COUNT(*) FROM usnullsback WHERE even_zip IS NULL").get(0).getFirstValueContent());
+        assertEquals("0", "" + tc.db().prepare("SELECT COUNT(*) FROM usnullsback WHERE typeof(even_zip) = 'text'").get(0).getFirstValueContent());
+        assertEquals("0", "" + tc.db().prepare("SELECT COUNT(*) FROM (SELECT * FROM usnulls EXCEPT SELECT * FROM usnullsback)").get(0).getFirstValueContent());
+        assertEquals("0", "" + tc.db().prepare("SELECT COUNT(*) FROM (SELECT * FROM usnullsback EXCEPT SELECT * FROM usnulls)").get(0).getFirstValueContent());
+
+        tc.db().dropIfExistsTable("usnulls");
+        tc.db().dropIfExistsTable("usnullsback");
+        tc.db().dropIfExistsTable("ustyped");
+        tc.db().dropIfExistsTable("ustypedback");
+        tc.db().dropIfExistsTable("usback");
+    }
+
+    @Test
+    public void testColumnarTruncated() throws IOException {
+        // more than one block, the second one cut off
+        tc.processScript("usbig := SELECT a.first_name, b.last_name FROM us a, us b LIMIT 10000;");
+        tc.processScript("usbig =: usbig.bsc;");
+        final File file = new File(tc.getContext().getWorkingDirectory() + File.separator + "usbig.bsc");
+        try (RandomAccessFile truncated = new RandomAccessFile(file, "rw")) {
+            truncated.setLength(file.length() - 100);
+        }
+
+        tc.flush();
+        tc.processScript("usbigback := usbig.bsc;");
+        assertEquals(true, tc.getTestLog().isMentionedInErrLog("import rolled back"));
+        assertEquals("nothing of the file is kept", false, tc.db().existsTable("usbigback"));
+        assertEquals(null, tc.db().getVariable("usbigback"));
+
+        tc.db().dropIfExistsTable("usbig");
+    }
+
     @Test
     public void testExportAll() {
         tc.processScript("=:");
         assertEquals(6, FileIOUtils.getFiles(tc.getContext().getWorkingDirectory(), "*.csv").length);
     }
 
+    @Test
+    public void testParallelExportAll() {
+        tc.processScript("us =: usexp.csv;");
+        tc.flush();
+        tc.processScript("=: WITH parallel(3);");
+        assertEquals(true, tc.noErrors());
+        assertEquals(true, tc.getTestLog().isMentionedInWarnLog("replaced by"));
+        assertEquals(6, FileIOUtils.getFiles(tc.getContext().getWorkingDirectory(), "*.csv").length);
+
+        // each file is complete and in order (us1 and us2 are copies of us before other tests changed it)
+        assertEquals(tc.readCompleteFile("usexp.csv"), tc.readCompleteFile("us.csv"));
+        assertEquals(tc.readCompleteFile("us1.csv"), tc.readCompleteFile("us2.csv"));
+        assertEquals(501, tc.readCompleteFile("us1.csv").split("\n").length);
+    }
+
     @AfterClass
     public static void cleanUp() {
         tc.dispose();
@@ -158,6 +158,22 @@ public class FileImporterTest {
         assertEquals("count", 2, tc.db().count("emptyLine"));
     }
 
+    @Test
+    public void importLogTest() {
+        tc.flush();
+        tc.writeToFile("dirty.csv", "a,b,c\n1,2,3\n1,2\n\n1,2,3,4\n1,2,3");
+
+        tc.processScript("dirty := dirty.csv");
+        // the line with too many values is not imported
+        assertEquals(3, tc.db().count("dirty"));
+        assertEquals("row\treason\tdetails\n"
+                        + "2\tTOO_FEW_VALUES\t2/3 values: [1, 2]\n"
+                        + "3\tEMPTY_LINE\t\n"
+                        + "4\tTOO_MANY_VALUES\t4/3 values: [1, 2, 3, 4]\n",
+                tc.readCompleteFile("boilersuit_import_export.log"));
+        assertEquals(true, tc.getTestLog().isMentionedInWarnLog("Found 3 problematic lines in dirty.csv"));
+    }
+
     @Test
     public void lineBreakTest() {
         tc.flush();
@@ -194,6 +210,106 @@ public class FileImporterTest {
         assertEquals(4, tc.db().count("t"));
     }
 
+    @Test
+    public void inferTypesTest() {
+        tc.flush();
+        tc.processScript("t := test7.csv WITH delim(\";\"), types(infer)");
+        assertEquals(4, tc.db().count("t"));
+        List<Record> r = tc.db().prepare("SELECT typeof(exid) AS e, typeof(code) AS c, typeof(somedate) AS d FROM t");
+        assertEquals("Record: e: integer, c: text, d: text", r.get(0).toString());
+        r = tc.db().prepare("PRAGMA table_info(t)");
+        assertEquals("INTEGER", r.get(0).getValue("type").getValue());
+        assertEquals("DATE TEXT", r.get(2).getValue("type").getValue());
+
+        // zip codes with leading zeros stay text
+        tc.processScript("u := us-500.csv WITH types(infer)");
+        assertEquals(500, tc.db().count("u"));
+        assertEquals("0", tc.db().prepare("SELECT count(*) FROM u WHERE typeof(zip) <> 'text'").get(0).getFirstValueContent());
+    }
+
+    @Test
+    public void inferTypesMismatchTest() {
+        tc.flush();
+
+        // values after the sample contradicting the inferred types
+        final StringBuilder csv = new StringBuilder("n,d\n");
+        for (int i = 0; i < 1000; i++) {
+            csv.append(i).append(",2016-01-01\n");
+        }
+        csv.append("007,2020\n");
+        csv.append("abc,2016-01-02\n");
+        tc.writeToFile("mismatch.csv", csv.toString());
+
+        tc.processScript("m := mismatch.csv WITH types(infer)");
+        assertEquals(1002, tc.db().count("m"));
+        // the affinity of the columns still applies: 007 becomes a number, 2020 stays a text in the date column
+        List<Record> r = tc.db().prepare("SELECT typeof(n) AS tn, n, typeof(d) AS td, d FROM m WHERE rowid = 1001");
+        assertEquals("Record: tn: integer, n: 7, td: text, d: 2020", r.get(0).toString());
+        assertEquals("row\treason\tdetails\n"
+                        + "1001\tTYPE_MISMATCH\tn INTEGER: 007\n"
+                        + "1001\tTYPE_MISMATCH\td DATE: 2020\n"
+                        + "1002\tTYPE_MISMATCH\tn INTEGER: abc\n",
+                tc.readCompleteFile("boilersuit_import_export.log"));
+        assertEquals(true, tc.getTestLog().isMentionedInWarnLog("Found 3 values not matching the inferred column types in mismatch.csv"));
+
+        // after an empty line, the rows are reported as the parser counts them, read in parallel as well
+        csv.insert(csv.indexOf("\n") + 1, "\n");
+        tc.writeToFile("mismatch.csv", csv.toString());
+        final String expectedLog = "row\treason\tdetails\n"
+                + "1\tEMPTY_LINE\t\n"
+                + "1002\tTYPE_MISMATCH\tn INTEGER: 007\n"
+                + "1002\tTYPE_MISMATCH\td DATE: 2020\n"
+                + "1003\tTYPE_MISMATCH\tn INTEGER: abc\n";
+        tc.processScript("m := mismatch.csv WITH types(infer), threads(1)");
+        assertEquals(expectedLog, tc.readCompleteFile("boilersuit_import_export.log"));
+        tc.processScript("m := mismatch.csv WITH types(infer), threads(3)");
+        assertEquals(expectedLog, tc.readCompleteFile("boilersuit_import_export.log"));
+        assertEquals(1002, tc.db().count("m"));
+    }
+
+    @Test
+    public void parallelImportTest() {
+        tc.flush();
+
+        // several chunks, with a record spanning lines and an empty line in between
+        final String us500 = tc.getResource("us-500.csv");
+        final String us500Records = us500.substring(us500.indexOf('\n') + 1);
+        // ...and records with doubled and escaped quotes, within and across lines
+        tc.writeToFile("big.csv", us500 + us500Records + "\"Multi\",\"Line\nName\"\n\n" + us500Records + us500Records
+                + "\"Doubled\",\"a \"\"quoted\"\", word\nover \"\"two\n\"\" lines\"\n"
+                + "\"Escaped\",\"back\\\"slash\nquote\"\n");
+
+        tc.processScript("s := big.csv WITH threads(1)");
+        tc.processScript("p := big.csv WITH threads(3)");
+        assertEquals(2003, tc.db().count("p"));
+        assertEquals(tc.db().count("s"), tc.db().count("p"));
+        assertEquals("0", tc.db().prepare("SELECT count(*) FROM (SELECT rowid, * FROM s EXCEPT SELECT rowid, * FROM p)").get(0).getFirstValueContent());
+        assertEquals("Line\nName", tc.db().prepare("SELECT last_name FROM p WHERE rowid = 1001").get(0).getFirstValueContent());
+        assertEquals(true, tc.getTestLog().isMentionedInWarnLog("Ignored empty line at 1002"));
+        assertEquals("a \"quoted\", word\nover \"two\n\" lines", tc.db().prepare("SELECT last_name FROM p WHERE rowid = 2002").get(0).getFirstValueContent());
+        assertEquals("back\"slash\nquote", tc.db().prepare("SELECT last_name FROM p WHERE rowid = 2003").get(0).getFirstValueContent());
+
+        tc.processScript("t := test4.csv WITH threads(2)");
+        List<Record> r = tc.db().getAllRecordsFromTableOrView("t", null, null);
+        assertEquals("Record: col1: val21, col2: val22, col3: val23, col4: val24\nwhich is\ntruncated\nuntil here", r.get(1).toString());
+        assertEquals(5, r.size());
+    }
+
+    @Test
+    public void parallelEscapeOutsideQuotesTest() {
+        tc.flush();
+
+        // the parser applies the escape character within unquoted values as well, so no quoted value is opened here
+        tc.writeToFile("escaped.csv", "id,name\n1,a\\\"b\n2,c\n3,\"d\"\n");
+
+        tc.processScript("es := escaped.csv WITH threads(1)");
+        tc.processScript("ep := escaped.csv WITH threads(2)");
+        assertEquals(3, tc.db().count("es"));
+        assertEquals(3, tc.db().count("ep"));
+        assertEquals("a\"b", tc.db().prepare("SELECT name FROM ep WHERE id = '1'").get(0).getFirstValueContent());
+        assertEquals("0", tc.db().prepare("SELECT count(*) FROM (SELECT rowid, * FROM es EXCEPT SELECT rowid, * FROM ep)").get(0).getFirstValueContent());
+    }
+
     //@Test
     public void temp() {
         tc.flush();
@@ -32,4 +32,75 @@ public class MatchInterpreterTest {
         ProcessingResult pr = tc.processScript("m := MATCH un(name) ON c(name) WITH THRESHOLD(0.80), SUPPRESSSECONDBEST;");
         assertEquals("suppress2ndbest", "1", tc.getContext().getDatabase().prepare("SELECT COUNT(*) FROM m_fuzzy_matches WHERE un_name = 'Graciela Ruta'").get(0).getFirstValueContent());
     }
+
+    @Test
+    public void testBlocking() {
+        tc.processScript("mb := MATCH un(name) ON c(name) WITH THRESHOLD(0.85), BLOCKING(qgram);");
+        assertEquals("Count of fuzzy entries", 6, tc.getContext().getDatabase().count("mb_fuzzy_matches"));
+        assertEquals("statistics", true, tc.getTestLog().isMentionedInInfoLog("Blocking by qgram: compared "));
+        assertEquals("recall", true, tc.getTestLog().isMentionedInInfoLog("matches of the sample (estimated recall "));
+
+        // without threshold, every candidate is a match
+        tc.processScript("mn := MATCH un(name) ON c(name) WITH BLOCKING(qgram);");
+        assertEquals("no recall", true, tc.getTestLog().isMentionedInInfoLog("recall not estimated"));
+
+        tc.processScript("ms := MATCH un(name) ON c(name) WITH THRESHOLD(0.85), BLOCKING(sortedneighbourhood, 10);");
+        assertEquals("sorted neighbourhood", true, tc.getContext().getDatabase().existsTable("ms_fuzzy_matches"));
+
+        final ProcessingResult pr = tc.processScript("mx := MATCH un(name) ON c(name) WITH BLOCKING(nonsense);");
+        assertEquals("unknown method", ProcessingResult.ResultType.SYNTAX_ERROR, pr.getType());
+    }
+
+    @Test
+    public void testParallel() {
+        tc.processScript("ms := MATCH un(name) ON c(name) WITH THRESHOLD(0.80);");
+        tc.processScript("mp := MATCH un(name) ON c(name) WITH THRESHOLD(0.80), PARALLEL(3);");
+        assertEquals("same count", tc.getContext().getDatabase().count("ms_fuzzy_matches"), tc.getContext().getDatabase().count("mp_fuzzy_matches"));
+        assertEquals("same matches in same order", "0", tc.getContext().getDatabase().prepare(
+            "SELECT COUNT(*) FROM (SELECT rowid, * FROM ms_fuzzy_matches EXCEPT SELECT rowid, * FROM mp_fuzzy_matches)").get(0).getFirstValueContent());
+    }
+
+    @Test
+    public void testTop() {
+        tc.processScript("mt := MATCH un(name) ON c(name) WITH THRESHOLD(0.5), TOP(2);");
+        assertEquals("at most 2 per left record", "0", tc.getContext().getDatabase().prepare(
+            "SELECT COUNT(*) FROM (SELECT un_name FROM mt_fuzzy_matches GROUP BY un_name HAVING COUNT(*) > 2)").get(0).getFirstValueContent());
+        assertEquals("some left records with 2", true, Integer.parseInt("" + tc.getContext().getDatabase().prepare(
+            "SELECT COUNT(*) FROM (SELECT un_name FROM mt_fuzzy_matches GROUP BY un_name HAVING COUNT(*) = 2)").get(0).getFirstValueContent()) > 0);
+        assertEquals("above threshold", "0", tc.getContext().getDatabase().prepare(
+            "SELECT COUNT(*) FROM mt_fuzzy_matches WHERE match_jaro <= 0.5 AND match_jarowinkler <= 0.5 AND match_dice <= 0.5").get(0).getFirstValueContent());
+    }
+
+    @Test
+    public void testThresholdSkipsNoMatches() {
+        tc.processScript("ma := MATCH un(name) ON c(name);");
+        tc.processScript("mh := MATCH un(name) ON c(name) WITH THRESHOLD(0.71);");
+        assertEquals("same matches as filtering all pairs", "0", tc.getContext().getDatabase().prepare(
+            "SELECT COUNT(*) FROM (SELECT un_name, c_name FROM ma_fuzzy_matches WHERE match_exact = 'yes' OR match_jaro > 0.71 OR match_jarowinkler > 0.71 OR match_dice > 0.71"
+                + " EXCEPT SELECT un_name, c_name FROM mh_fuzzy_matches)").get(0).getFirstValueContent());
+        assertEquals("no additional matches", "0", tc.getContext().getDatabase().prepare(
+            "SELECT COUNT(*) FROM (SELECT un_name, c_name FROM mh_fuzzy_matches"
+                + " EXCEPT SELECT un_name, c_name FROM ma_fuzzy_matches WHERE match_exact = 'yes' OR match_jaro > 0.71 OR match_jarowinkler > 0.71 OR match_dice > 0.71)").get(0).getFirstValueContent());
+    }
+
+    @Test
+    public void testResume() {
+        tc.processScript("mr := MATCH un(name) ON c(name) WITH THRESHOLD(0.85), RESUME;");
+        assertEquals("nothing to resume", 6, tc.getContext().getDatabase().count("mr_fuzzy_matches"));
+        assertEquals("progress removed when complete", false, tc.getContext().getDatabase().existsTable("mr_match_progress"));
+
+        // as if interrupted after the first (and only) partition pair, with 2 matches lost
+        tc.db().prepare("CREATE TABLE mr_match_progress (left_partition, right_partition, left_count, right_count)");
+        tc.db().prepare("INSERT INTO mr_match_progress VALUES (0, 0, 500, 100)");
+        tc.db().prepare("DELETE FROM mr_fuzzy_matches WHERE rowid IN (SELECT rowid FROM mr_fuzzy_matches LIMIT 2)");
+        tc.processScript("mr := MATCH un(name) ON c(name) WITH THRESHOLD(0.85), RESUME;");
+        assertEquals("completed pair not matched again", 4, tc.getContext().getDatabase().count("mr_fuzzy_matches"));
+
+        // tables changed since
+        tc.db().prepare("CREATE TABLE mr_match_progress (left_partition, right_partition, left_count, right_count)");
+        tc.db().prepare("INSERT INTO mr_match_progress VALUES (0, 0, 499, 100)");
+        tc.processScript("mr := MATCH un(name) ON c(name) WITH THRESHOLD(0.85), RESUME;");
+        assertEquals("started from scratch", 6, tc.getContext().getDatabase().count("mr_fuzzy_matches"));
+        assertEquals(true, tc.getTestLog().isMentionedInWarnLog("Cannot resume"));
+    }
 }
@@ -0,0 +1,47 @@
+package ch.brickwork.bsuit;
+
+import ch.brickwork.bsuit.interpreter.interpreters.ProcessingResult;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PerformanceProfileInterpreterTest {
+    private static BoilerSuitTestContext tc = new BoilerSuitTestContext();
+
+    @Test
+    public void switchProfile() {
+        ProcessingResult pr = tc.processScript("PROFILE");
+        assertEquals(true, pr.getResultSummary().contains("default"));
+        assertEquals("delete", tc.db().prepare("PRAGMA journal_mode").get(0).getFirstValueContent());
+
+        tc.processScript("PROFILE bulk-load;");
+        assertEquals(true, tc.noErrors());
+        assertEquals("wal", tc.db().prepare("PRAGMA journal_mode").get(0).getFirstValueContent());
+        assertEquals("0", tc.db().prepare("PRAGMA synchronous").get(0).getFirstValueContent());
+
+        tc.writeToFile("carowners.csv", tc.getResource("carowners.csv"));
+        tc.processScript("carowners := carowners.csv;");
+        assertEquals(4, tc.db().count("carowners"));
+
+        tc.processScript("PROFILE default;");
+        assertEquals("delete", tc.db().prepare("PRAGMA journal_mode").get(0).getFirstValueContent());
+
+        pr = tc.processScript("PROFILE warp-speed;");
+        assertEquals(ProcessingResult.ResultType.SYNTAX_ERROR, pr.getType());
+        assertEquals("unchanged", "delete", tc.db().prepare("PRAGMA journal_mode").get(0).getFirstValueContent());
+
+        // a known profile which cannot be applied, as the journal mode cannot change to WAL within a transaction
+        tc.db().beginTransaction();
+        pr = tc.processScript("PROFILE bulk-load;");
+        tc.db().rollbackTransaction();
+        assertEquals(ProcessingResult.ResultType.FATAL_ERROR, pr.getType());
+        assertEquals("Could not apply performance profile bulk-load, performance profile is still default", pr.getResultSummary());
+        assertEquals("unchanged", "delete", tc.db().prepare("PRAGMA journal_mode").get(0).getFirstValueContent());
+    }
+
+    @AfterClass
+    public static void cleanUp() {
+        tc.dispose();
+    }
+}
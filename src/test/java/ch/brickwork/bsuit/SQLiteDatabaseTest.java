@@ -0,0 +1,174 @@
+package ch.brickwork.bsuit;
+
+import ch.brickwork.bsuit.database.IRecordCallback;
+import ch.brickwork.bsuit.database.IRecordCursor;
+import ch.brickwork.bsuit.database.KeysetPartitioning;
+import ch.brickwork.bsuit.database.Record;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * tests on database level, i.e., without going through the interpreters
+ */
+public class SQLiteDatabaseTest {
+    private static BoilerSuitTestContext tc = new BoilerSuitTestContext();
+
+    @Test
+    public void cursor() {
+        tc.db().prepare("CREATE TABLE numbers (n, name)");
+        final List<Record> records = new ArrayList<>();
+        for (int i = 0; i < 1234; i++) {
+            final Record r = new Record();
+            r.put("n", "" + i);
+            r.put("name", "it's " + i);
+            records.add(r);
+        }
+        tc.db().insert("numbers", records);
+
+        // reads beyond several fetch chunks
+        final IRecordCursor cursor = tc.db().openCursor("numbers", "rowid", true);
+        assertEquals("columns", "[n, name]", cursor.getColumnNames().toString());
+        int count = 0;
+        while (cursor.hasNext()) {
+            final Record r = cursor.next();
+            assertEquals("it's " + count, r.getValue("name").getValue());
+            count++;
+        }
+        cursor.close();
+        assertEquals(1234, count);
+        assertEquals(false, cursor.isFailed());
+
+        // closing early releases the statement, such that the table can be dropped
+        final IRecordCursor early = tc.db().openCursor("SELECT * FROM numbers");
+        early.next();
+        early.close();
+        assertEquals(false, early.hasNext());
+
+        // callback, stopping after 10 records
+        final int[] handled = new int[1];
+        assertEquals(true, tc.db().forEachRecord("SELECT * FROM numbers", new IRecordCallback() {
+            @Override
+            public boolean handle(Record record) {
+                return ++handled[0] < 10;
+            }
+        }));
+        assertEquals(10, handled[0]);
+
+        tc.db().prepare("DROP TABLE numbers");
+        assertEquals(false, tc.db().existsTable("numbers"));
+
+        assertEquals(null, tc.db().openCursor("SELECT * FROM numbers"));
+    }
+
+    @Test
+    public void keysetPartitioning() {
+        tc.db().prepare("CREATE TABLE letters (letter)");
+        final List<Record> records = new ArrayList<>();
+        for (int i = 0; i < 1234; i++) {
+            final Record r = new Record();
+            r.put("letter", "l" + i);
+            records.add(r);
+        }
+        tc.db().insert("letters", records);
+        tc.db().prepare("DELETE FROM letters WHERE letter = 'l3'");
+        tc.db().prepare("CREATE VIEW letters_view AS SELECT * FROM letters");
+
+        for (String tableOrView : new String[] {"letters", "letters_view"}) {
+            final List<Integer> sizes = new ArrayList<>();
+            for (List<Record> partition : new KeysetPartitioning(tc.db(), tableOrView, 500)) {
+                sizes.add(partition.size());
+                assertEquals("only the table's columns", 1, partition.get(0).countValues());
+            }
+            assertEquals(tableOrView, "[500, 500, 233]", sizes.toString());
+        }
+
+        // records can be written while a cursor is reading
+        tc.db().prepare("CREATE TABLE letters_copy (letter)");
+        final IRecordCursor cursor = tc.db().openCursor("SELECT * FROM letters");
+        int count = 0;
+        while (cursor.hasNext()) {
+            final Record r = cursor.next();
+            if (count++ % 100 == 0) {
+                final Record copy = new Record();
+                copy.put("letter", r.getValue("letter").getValue());
+                tc.db().insert("letters_copy", Collections.singletonList(copy));
+            }
+        }
+        assertEquals(false, cursor.isFailed());
+        assertEquals(1233, count);
+        assertEquals(13, tc.db().count("letters_copy"));
+    }
+
+    @Test
+    public void insertRows() {
+        tc.db().prepare("CREATE TABLE rows (name, score)");
+        final List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 1234; i++) {
+            rows.add(new Object[] {"it's " + i, i / 4.0});
+        }
+        assertEquals(true, tc.db().insert("rows", Arrays.asList("name", "score"), rows));
+        assertEquals(1234, tc.db().count("rows"));
+        assertEquals("it's 6", tc.db().prepare("SELECT name FROM rows WHERE score = 1.5").get(0).getFirstValueContent());
+
+        // a short row leaves the remaining columns null
+        tc.db().insert("rows", Arrays.asList("name", "score"), Collections.singletonList(new Object[] {"short"}));
+        assertEquals("1", tc.db().prepare("SELECT score IS NULL FROM rows WHERE name = 'short'").get(0).getFirstValueContent());
+
+        // within a transaction, a failing insert only rolls back its own rows
+        tc.db().beginTransaction();
+        tc.db().insert("rows", Arrays.asList("name", "score"), Collections.singletonList(new Object[] {"added", 0}));
+        assertEquals(false, tc.db().insert("rows", Arrays.asList("name", "no_such_column"), Collections.singletonList(new Object[] {"failed", 0})));
+        tc.db().commitTransaction();
+        assertEquals(1236, tc.db().count("rows"));
+
+        // ...while rolling back the transaction discards all of them
+        tc.db().beginTransaction();
+        tc.db().insert("rows", Arrays.asList("name", "score"), Collections.singletonList(new Object[] {"discarded", 0}));
+        tc.db().rollbackTransaction();
+        assertEquals(1236, tc.db().count("rows"));
+    }
+
+    @Test
+    public void schemaCache() {
+        assertEquals(false, tc.db().existsTable("cached"));
+        tc.db().prepare("CREATE TABLE cached (a, b)");
+        assertEquals("invalidated by CREATE", true, tc.db().existsTable("cached"));
+
+        final long misses = tc.db().getSchemaCacheMisses();
+        final long hits = tc.db().getSchemaCacheHits();
+        assertEquals("[a, b]", tc.db().getTableOrViewColumnNames("cached").toString());
+        assertEquals("[a, b]", tc.db().getTableOrViewColumnNames("CACHED").toString());
+        assertEquals(1, (int) tc.db().getTableOrViewColumnNamesHash("cached").get("b"));
+        assertEquals(true, tc.db().existsTable("cached"));
+        assertEquals(misses + 1, tc.db().getSchemaCacheMisses());
+        assertEquals(hits + 3, tc.db().getSchemaCacheHits());
+
+        tc.db().prepare("ALTER TABLE cached ADD COLUMN c");
+        assertEquals("invalidated by ALTER", "[a, b, c]", tc.db().getTableOrViewColumnNames("cached").toString());
+        tc.db().prepare("drop table cached");
+        assertEquals("invalidated by DROP", false, tc.db().existsTable("cached"));
+
+        tc.db().beginTransaction();
+        tc.db().prepare("CREATE TABLE cached (a)");
+        assertEquals(true, tc.db().existsTable("cached"));
+        tc.db().rollbackTransaction();
+        assertEquals("invalidated by rollback", false, tc.db().existsTable("cached"));
+
+        assertEquals(false, tc.db().existsTable("commented"));
+        tc.db().prepare("/* leading comment */ -- and another one\n CREATE TABLE commented (a)");
+        assertEquals("invalidated after comments", true, tc.db().existsTable("commented"));
+        tc.db().prepare("DROP TABLE commented");
+    }
+
+    @AfterClass
+    public static void cleanUp() {
+        tc.dispose();
+    }
+}
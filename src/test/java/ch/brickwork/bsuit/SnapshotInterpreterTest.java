@@ -0,0 +1,55 @@
+package ch.brickwork.bsuit;
+
+import ch.brickwork.bsuit.database.SQLiteDatabase;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+
+public class SnapshotInterpreterTest {
+    private static BoilerSuitTestContext tc = new BoilerSuitTestContext();
+
+    @Test
+    public void inMemorySnapshot() {
+        final String workingDirectory = tc.getContext().getWorkingDirectory();
+        final SQLiteDatabase inMemory = new SQLiteDatabase(workingDirectory, tc.getContext().getLog(), true);
+        tc.getContext().setDatabase(inMemory);
+
+        tc.writeToFile("carowners.csv", tc.getResource("carowners.csv"));
+        tc.processScript("carowners := carowners.csv;");
+        assertEquals(4, inMemory.count("carowners"));
+
+        // on demand
+        new File(workingDirectory, "snap").mkdir();
+        tc.processScript("SNAPSHOT snap" + File.separator + "data.db;");
+        assertEquals(true, tc.noErrors());
+        final SQLiteDatabase snapshot = new SQLiteDatabase(workingDirectory + File.separator + "snap", tc.getContext().getLog());
+        assertEquals(4, snapshot.count("carowners"));
+        snapshot.close();
+
+        // when closed
+        tc.processScript("carowners2 := carowners;");
+        inMemory.close();
+        final SQLiteDatabase onDisk = new SQLiteDatabase(workingDirectory, tc.getContext().getLog());
+        assertEquals(4, onDisk.count("carowners2"));
+        onDisk.close();
+
+        // an existing file is loaded, not overwritten
+        final SQLiteDatabase reopened = new SQLiteDatabase(workingDirectory, tc.getContext().getLog(), true);
+        assertEquals(4, reopened.count("carowners2"));
+        reopened.prepare("CREATE VIEW carowners3 AS SELECT * FROM carowners2");
+        assertEquals(false, reopened.changeDBFileDirectory(workingDirectory + File.separator + "snap"));
+        reopened.close();
+        final SQLiteDatabase onDiskAgain = new SQLiteDatabase(workingDirectory, tc.getContext().getLog());
+        assertEquals(4, onDiskAgain.count("carowners"));
+        assertEquals(4, onDiskAgain.count("carowners3"));
+        onDiskAgain.close();
+    }
+
+    @AfterClass
+    public static void cleanUp() {
+        tc.dispose();
+    }
+}
@@ -0,0 +1,64 @@
+package ch.brickwork.bsuit;
+
+import ch.brickwork.bsuit.matcher.StringSimilarity;
+import net.ricecode.similarity.DiceCoefficientStrategy;
+import net.ricecode.similarity.JaroStrategy;
+import net.ricecode.similarity.JaroWinklerStrategy;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * compares the similarity measures of the matcher with those of the string-similarity library, score for score
+ */
+public class StringSimilarityTest {
+
+    private static final String[][] PAIRS = {
+        {"Graciela Ruta", "Graciela Rutta"},
+        {"MARTHA", "marhta"},
+        {"DwAyNe", "DuANE"},
+        {"DIXON", "DICKSONX"},
+        {"Müller*Hans", "Mueller*Hans"},
+        {"a*b*c", "c*b*a"},
+        {"İstanbul", "istanbul"},
+        {"", ""},
+        {"", "a"},
+        {"a", "a"},
+        {"a", "ab"},
+        {"ab", "ba"},
+        {"  padded ", "padded"}
+    };
+
+    private static final String ALPHABET = "aAbBcCéÉ *-1";
+
+    @Test
+    public void sameScoresAsLibrary() {
+        for (final String[] pair : PAIRS) {
+            assertSameScores(pair[0], pair[1]);
+            assertSameScores(pair[1], pair[0]);
+        }
+
+        final Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            assertSameScores(randomString(random), randomString(random));
+        }
+    }
+
+    private static void assertSameScores(final String s1, final String s2) {
+        final String pair = "'" + s1 + "' vs. '" + s2 + "'";
+        assertEquals("Jaro " + pair, new JaroStrategy().score(s1, s2), StringSimilarity.jaro(s1, s2), 0);
+        assertEquals("Jaro-Winkler " + pair, new JaroWinklerStrategy().score(s1, s2), StringSimilarity.jaroWinkler(s1, s2), 0);
+        assertEquals("Dice " + pair, new DiceCoefficientStrategy().score(s1, s2), StringSimilarity.dice(s1, s2), 0);
+    }
+
+    private static String randomString(final Random random) {
+        final StringBuilder s = new StringBuilder();
+        final int length = random.nextInt(12);
+        for (int i = 0; i < length; i++) {
+            s.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,98 @@
+package ch.brickwork.bsuit.matcher;
+
+import net.ricecode.similarity.DiceCoefficientStrategy;
+import net.ricecode.similarity.JaroStrategy;
+import net.ricecode.similarity.JaroWinklerStrategy;
+
+import java.util.Random;
+
+/**
+ * Compares the time needed to score all pairs of a set of names with the string-similarity library and with
+ * StringSimilarity on prepared keys, as the matcher does. Not run as a test; start main() with the test classpath,
+ * optionally with the number of names (default 2000) as argument.
+ */
+public class StringSimilarityBenchmark {
+
+    private static final String[] FIRST_NAMES = {"James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael", "Linda", "William",
+        "Elizabeth", "Graciela", "Chau", "Lashandra", "Hermila"};
+
+    private static final String[] LAST_NAMES = {"Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez",
+        "Martinez", "Ruta", "Kitzman", "Klang", "Thyberg"};
+
+    private static final int ROUNDS = 5;
+
+    public static void main(final String[] args)
+    {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        final Random random = new Random(42);
+        final String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = typo(random, FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]) + " "
+                + typo(random, LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+        }
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            final long libraryNanos = scoreWithLibrary(names);
+            final long preparedNanos = scoreWithPreparedKeys(names);
+            System.out.println("Round " + round + ": " + (long) count * count + " pairs, library " + libraryNanos / 1000000 + " ms, StringSimilarity "
+                + preparedNanos / 1000000 + " ms (" + String.format("%.1f", (double) libraryNanos / preparedNanos) + "x)");
+        }
+    }
+
+    private static long scoreWithLibrary(final String[] names)
+    {
+        final long start = System.nanoTime();
+        double sum = 0;
+        for (final String left : names) {
+            for (final String right : names) {
+                sum += new JaroStrategy().score(left, right) + new JaroWinklerStrategy().score(left, right)
+                    + new DiceCoefficientStrategy().score(left, right);
+            }
+        }
+        return consume(sum, System.nanoTime() - start);
+    }
+
+    private static long scoreWithPreparedKeys(final String[] names)
+    {
+        final long start = System.nanoTime();
+        final char[][] lowerCase = new char[names.length][];
+        final long[][] bigrams = new long[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            lowerCase[i] = names[i].toLowerCase().toCharArray();
+            bigrams[i] = StringSimilarity.bigrams(names[i]);
+        }
+
+        double sum = 0;
+        for (int i = 0; i < names.length; i++) {
+            for (int j = 0; j < names.length; j++) {
+                final double jaro = StringSimilarity.jaro(lowerCase[i], lowerCase[j], names[i].length() > names[j].length());
+                sum += jaro + StringSimilarity.jaroWinkler(jaro, StringSimilarity.commonPrefixLength(lowerCase[i], lowerCase[j]))
+                    + StringSimilarity.dice(bigrams[i], bigrams[j]);
+            }
+        }
+        return consume(sum, System.nanoTime() - start);
+    }
+
+    /**
+     * uses the sum of the scores, such that the JIT cannot drop the scoring
+     */
+    private static long consume(final double sum, final long nanos)
+    {
+        if (sum < 0) {
+            System.out.println(sum);
+        }
+        return nanos;
+    }
+
+    /**
+     * @return the name with a random letter replaced, for every third name
+     */
+    private static String typo(final Random random, final String name)
+    {
+        if (random.nextInt(3) != 0) {
+            return name;
+        }
+        final int position = random.nextInt(name.length());
+        return name.substring(0, position) + (char) ('a' + random.nextInt(26)) + name.substring(position + 1);
+    }
+}